@@ -13,6 +13,7 @@ export enum EntityType {
     PERSON = "PERSON",
     LOCATION = "LOCATION",
     COORDINATES = "COORDINATES",
+    ARCHIVE = "ARCHIVE",
 }
 
 export type ImportHistoryDto = {
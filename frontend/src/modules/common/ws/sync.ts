@@ -3,12 +3,16 @@ import { Client } from "@stomp/stompjs";
 import type { Store } from "@reduxjs/toolkit";
 import { baseApi } from "@common/api/baseApi";
 
-type Operation = "CREATE" | "UPDATE" | "DELETE";
+type Operation = "CREATE" | "UPDATE" | "DELETE" | "BULK_IMPORT";
 
 type ChangeEvent = {
     entity: string;
     operation: Operation;
-    id: number;
+    id: number | null;
+    // Aggregated events (BULK_IMPORT, or UPDATE/DELETE without id): one event per entity type for a whole import
+    count?: number;
+    minId?: number | null;
+    maxId?: number | null;
 };
 
 const entityToTags: Record<string, { list: string; single: (id: number) => { type: string; id: number }[] }> = {
@@ -41,7 +45,13 @@ export function initSync(store: Store) {
 
                         // Invalidate the the following RTK Query ids: "LIST" and {id of entity}
                         store.dispatch(baseApi.util.invalidateTags([{ type: mapping.list, id: "LIST" }] as any));
-                        store.dispatch(baseApi.util.invalidateTags(mapping.single(event.id) as any));
+                        // BULK_IMPORT only adds rows, so refetching the lists is enough for it
+                        if (event.operation !== "BULK_IMPORT" && event.id != null) {
+                            store.dispatch(baseApi.util.invalidateTags(mapping.single(event.id) as any));
+                        } else if (event.operation === "UPDATE" || event.operation === "DELETE") {
+                            // Aggregated import changes carry no ids: refetch every cached entity of the type
+                            store.dispatch(baseApi.util.invalidateTags([mapping.list] as any));
+                        }
                     } catch {
                         console.error("Error parsing change event", message.body);
                     }
@@ -6,5 +6,7 @@ public enum EntityType {
     VENUE,
     PERSON,
     LOCATION,
-    COORDINATES
+    COORDINATES,
+    // Zip of several entity files, imported as a whole
+    ARCHIVE
 }
@@ -0,0 +1,8 @@
+package com.itmo.ticketsystem.common;
+
+public enum ImportMode {
+    // Every record is a new entity, stored natural keys are rejected
+    INSERT,
+    // Records with a stored natural key update that entity, the others are inserted
+    UPSERT
+}
@@ -0,0 +1,124 @@
+package com.itmo.ticketsystem.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "import")
+public class ImportConfig {
+    // Number of records handed to an importer at once in streaming mode
+    private int batchSize = 500;
+
+    // Write flat entities (coordinates, locations, events, venues) with COPY instead of row-by-row INSERTs
+    private boolean copyEnabled = true;
+
+    // Identical re-uploads by the same user within this window return the earlier result, 0 = disabled
+    private Duration idempotencyWindow = Duration.ofHours(24);
+
+    private Jobs jobs = new Jobs();
+
+    private Admission admission = new Admission();
+
+    private Validation validation = new Validation();
+
+    private DryRun dryRun = new DryRun();
+
+    private Archive archive = new Archive();
+
+    private Partitioned partitioned = new Partitioned();
+
+    private DirectUpload directUpload = new DirectUpload();
+
+    private Pipeline pipeline = new Pipeline();
+
+    private Recovery recovery = new Recovery();
+
+    @Data
+    public static class Jobs {
+        // Poll the import queue on this node
+        private boolean enabled = true;
+        // Concurrent import jobs per node
+        private int workers = 2;
+        private long pollIntervalMs = 1000;
+        // Publish progress to /topic/imports/{id}
+        private boolean progressMessages = true;
+        // Identifies the node that claimed a job
+        private String nodeId = "local";
+    }
+
+    @Data
+    public static class Admission {
+        // Share of the connection pool that running imports may hold, the rest stays free for CRUD
+        private double poolShare = 0.25;
+        // Hard cap on imports running at once on this node, 0 = only the connection budget of poolShare applies
+        private int maxConcurrent = 0;
+        // Imports one user may run at once
+        private int maxRunningPerUser = 1;
+        // Async imports one user may have waiting in the queue
+        private int maxQueuedPerUser = 10;
+    }
+
+    @Data
+    public static class Validation {
+        // Fork-join pool size for pre-validation, 0 = number of CPUs
+        private int parallelism = 0;
+        // Records parsed and validated per parallel step
+        private int blockSize = 10000;
+        // Failing records listed in the error message
+        private int maxReportedErrors = 100;
+    }
+
+    @Data
+    public static class DryRun {
+        // Rejected records listed in the dry-run report
+        private int maxRejected = 1000;
+        // Write cost model used for the estimate, per inserted row
+        private long rowWriteMicros = 250;
+        private long copyRowWriteMicros = 5;
+    }
+
+    @Data
+    public static class Archive {
+        // Parallel lanes (transactions, connections) per dependency level of a zip import
+        private int lanes = 3;
+    }
+
+    @Data
+    public static class Partitioned {
+        // Upper bound for the partitions (worker threads, connections) a partitioned import may ask for
+        private int maxPartitions = 4;
+        // Batches buffered per partition between the reading thread and its worker
+        private int queueBatches = 2;
+    }
+
+    @Data
+    public static class DirectUpload {
+        // Lifetime of the presigned PUT URL handed out for a direct-to-storage upload
+        private Duration urlExpiry = Duration.ofMinutes(15);
+    }
+
+    @Data
+    public static class Pipeline {
+        // Stage and validate single-transaction imports in one pass while the DB import runs, both join at the vote
+        private boolean enabled = true;
+        // Threads per node running those staging uploads
+        private int stagingThreads = 4;
+    }
+
+    @Data
+    public static class Recovery {
+        // Resolve in-doubt transactions and reclaim orphaned staged files (on the leader node only)
+        private boolean enabled = true;
+        private long intervalMs = 300000;
+        // Transactions without activity for this long are taken as abandoned by a stopped node
+        private Duration staleAfter = Duration.ofHours(1);
+        // Transactions and files resolved at once
+        private int parallelism = 4;
+        // Untracked staged files looked at per sweep
+        private int maxOrphansPerSweep = 1000;
+    }
+}
@@ -0,0 +1,9 @@
+package com.itmo.ticketsystem.common.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+public class TooManyRequestsException extends ApiException {
+    public TooManyRequestsException(String title, String message) {
+        super(title, message, HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
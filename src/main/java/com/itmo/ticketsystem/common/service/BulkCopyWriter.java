@@ -0,0 +1,90 @@
+package com.itmo.ticketsystem.common.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.function.Function;
+
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes flat rows with PostgreSQL {@code COPY ... FROM STDIN}.
+ * The copy runs on the JDBC connection of the current Hibernate session, so it
+ * takes part in the surrounding transaction (commit / rollback of the import).
+ */
+@Slf4j
+@Component
+public class BulkCopyWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Streams all records into {@code table} with a single COPY statement.
+     *
+     * @param table     target table
+     * @param columns   target columns, in the order produced by {@code rowMapper}
+     * @param records   records to write
+     * @param rowMapper maps a record to column values
+     * @return number of rows written
+     */
+    public <T> long copy(String table, String[] columns, T[] records, Function<T, Object[]> rowMapper) {
+        if (records.length == 0) {
+            return 0;
+        }
+
+        StringBuilder buffer = new StringBuilder(records.length * 64);
+        for (T record : records) {
+            appendRow(buffer, rowMapper.apply(record));
+        }
+
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+
+        Session session = entityManager.unwrap(Session.class);
+        long rows = session.doReturningWork(connection -> {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                return copyManager.copyIn(sql, new StringReader(buffer.toString()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        log.debug("COPY {}: {} rows", table, rows);
+        return rows;
+    }
+
+    private void appendRow(StringBuilder buffer, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            appendValue(buffer, values[i]);
+        }
+        buffer.append('\n');
+    }
+
+    // In CSV format an unquoted empty field is NULL, a quoted one is an empty string
+    private void appendValue(StringBuilder buffer, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            buffer.append(value);
+        } else if (value instanceof Enum<?> enumValue) {
+            buffer.append(enumValue.name());
+        } else if (value instanceof ZonedDateTime dateTime) {
+            buffer.append(dateTime.toOffsetDateTime());
+        } else {
+            buffer.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.itmo.ticketsystem.common.service;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Merges flat rows with PostgreSQL {@code INSERT ... ON CONFLICT (key) DO UPDATE}:
+ * rows with a new key are inserted, rows with a stored key overwrite it and bump
+ * its {@code version}. Like {@link BulkCopyWriter} it runs on the JDBC connection
+ * of the current Hibernate session, inside the surrounding transaction.
+ */
+@Slf4j
+@Component
+public class BulkUpsertWriter {
+
+    // PostgreSQL accepts at most 65535 bind parameters per statement
+    private static final int MAX_PARAMETERS = 65535;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Ids of the merged rows, split into inserted and updated ones.
+     */
+    public record Result(List<Long> insertedIds, List<Long> updatedIds) {
+        public int inserted() {
+            return insertedIds.size();
+        }
+
+        public int updated() {
+            return updatedIds.size();
+        }
+    }
+
+    /**
+     * Merges all records into {@code table}, with one statement per
+     * {@code 65535 / columns.length} records.
+     *
+     * @param entityType    entity mapped to {@code table}, cached copies of updated rows are evicted
+     * @param table         target table
+     * @param columns       inserted columns, in the order produced by {@code rowMapper}
+     * @param keyColumns    conflict target, a unique index must cover exactly these columns
+     * @param updateColumns columns overwritten when the key is already stored
+     * @param records       records to merge, at most one per key
+     * @param rowMapper     maps a record to column values
+     */
+    public <T> Result upsert(Class<?> entityType, String table, String[] columns, String[] keyColumns,
+            String[] updateColumns, T[] records, Function<T, Object[]> rowMapper) {
+        List<Long> inserted = new ArrayList<>();
+        List<Long> updated = new ArrayList<>();
+        if (records.length == 0) {
+            return new Result(inserted, updated);
+        }
+
+        int rowsPerStatement = Math.max(1, MAX_PARAMETERS / columns.length);
+        Session session = entityManager.unwrap(Session.class);
+        for (int from = 0; from < records.length; from += rowsPerStatement) {
+            int start = from;
+            int end = Math.min(records.length, from + rowsPerStatement);
+            String sql = sql(table, columns, keyColumns, updateColumns, end - start);
+
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    int parameter = 1;
+                    for (int i = start; i < end; i++) {
+                        for (Object value : rowMapper.apply(records[i])) {
+                            statement.setObject(parameter++, toJdbc(value));
+                        }
+                    }
+                    try (ResultSet rows = statement.executeQuery()) {
+                        while (rows.next()) {
+                            (rows.getBoolean(2) ? inserted : updated).add(rows.getLong(1));
+                        }
+                    }
+                }
+            });
+        }
+
+        // The rows were changed behind Hibernate's back
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        updated.forEach(id -> cache.evict(entityType, id));
+
+        log.debug("UPSERT {}: {} inserted, {} updated", table, inserted.size(), updated.size());
+        return new Result(inserted, updated);
+    }
+
+    // xmax is 0 for a row version created by an insert, set for one created by the update branch
+    private static String sql(String table, String[] columns, String[] keyColumns, String[] updateColumns,
+            int rows) {
+        String row = Arrays.stream(columns).map(column -> "?").collect(Collectors.joining(", ", "(", ")"));
+        String values = String.join(", ", Collections.nCopies(rows, row));
+        String updates = Arrays.stream(updateColumns)
+                .map(column -> column + " = EXCLUDED." + column)
+                .collect(Collectors.joining(", "));
+
+        return "INSERT INTO " + table + " AS t (" + String.join(", ", columns) + ") VALUES " + values
+                + " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " + updates
+                + ", version = t.version + 1"
+                + " RETURNING t.id, (t.xmax = 0) AS inserted";
+    }
+
+    private static Object toJdbc(Object value) {
+        if (value instanceof Enum<?> enumValue) {
+            return enumValue.name();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toOffsetDateTime();
+        }
+        return value;
+    }
+}
@@ -14,6 +14,11 @@ import com.itmo.ticketsystem.venue.VenueRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class EntityResolutionService {
@@ -98,4 +103,20 @@ public class EntityResolutionService {
         }
         return resolveLocation(id);
     }
+
+    /**
+     * Returns the values among {@code values} that are already taken, with one
+     * query for the whole collection.
+     */
+    public Set<String> findExistingKeys(UniqueKeyType keyType, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Set.of();
+        }
+        List<String> existing = switch (keyType) {
+            case LOCATION_NAME -> locationRepository.findExistingNames(values);
+            case VENUE_NAME -> venueRepository.findExistingNames(values);
+            case PASSPORT_ID -> personRepository.findExistingPassportIDs(values);
+        };
+        return new HashSet<>(existing);
+    }
 }
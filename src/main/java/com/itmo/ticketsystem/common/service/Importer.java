@@ -1,48 +1,410 @@
 package com.itmo.ticketsystem.common.service;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.itmo.ticketsystem.common.ImportMode;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.exceptions.BusinessValidationException;
+import com.itmo.ticketsystem.importhistory.dto.ImportDryRunDto;
+import com.itmo.ticketsystem.importhistory.dto.RejectedRecordDto;
+import com.itmo.ticketsystem.importhistory.reader.ImportRecordReader;
 import com.itmo.ticketsystem.user.User;
 
-import jakarta.validation.ConstraintViolation;
-import jakarta.validation.Validator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public abstract class Importer<T> {
     private final Class<T> type;
-    private final ObjectMapper objectMapper;
-    private final Validator validator;
 
-    private T[] fromJsonNode(JsonNode dataNode) throws Exception {
-        return objectMapper.treeToValue(dataNode, objectMapper.getTypeFactory().constructArrayType(type));
+    @Autowired
+    private ImportConfig importConfig;
+
+    @Autowired
+    private ParallelImportValidator parallelImportValidator;
+
+    @Autowired
+    private EntityResolutionService entityResolutionService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    protected ImportConfig getImportConfig() {
+        return importConfig;
+    }
+
+    /**
+     * Imports a batch of records. The records have already passed
+     * {@link #validateAll}.
+     *
+     * @param data     records of the batch
+     * @param offset   index of the first record of the batch within the whole file
+     * @param importId import the written rows are tagged with (their lineage), null outside imports
+     */
+    protected abstract int doImportInternal(T[] data, int offset, Long importId, User currentUser)
+            throws Exception;
+
+    /**
+     * True if the importer is an {@link UpsertImporter}, i.e. the entity has a
+     * natural key that {@link ImportMode#UPSERT} imports can merge on.
+     */
+    public final boolean supportsUpsert() {
+        return this instanceof UpsertImporter<?>;
+    }
+
+    /**
+     * Business unique keys of a record. Used by dry runs to report every
+     * colliding record instead of failing on the first one.
+     */
+    protected Map<UniqueKeyType, String> uniqueKeys(T dto) {
+        return Map.of();
     }
 
-    protected abstract int doImportInternal(T[] data, User currentUser) throws Exception;
+    /**
+     * Unique keys an {@link ImportMode#UPSERT} record merges on, each may occur
+     * only once per batch. Defaults to {@link #uniqueKeys}; keys of entities that
+     * an upsert shares instead of writing are left out.
+     */
+    protected Map<UniqueKeyType, String> upsertKeys(T dto) {
+        return uniqueKeys(dto);
+    }
 
-    public int doImport(JsonNode dataNode, User currentUser) throws Exception {
-        // Convert from JSON
-        T[] dtos = fromJsonNode(dataNode);
+    /**
+     * Number of rows a record is written as, for the dry-run write estimate.
+     */
+    protected int rowCount(T dto) {
+        return 1;
+    }
+
+    /**
+     * Checks that the references of a block of records to existing entities
+     * resolve, with batched lookups. Used by dry runs, real imports check their
+     * references per batch in {@link #doImportInternal}.
+     *
+     * @param offset index of the first record of the block within the whole file
+     */
+    protected List<RecordError> checkReferences(List<T> block, int offset) {
+        return List.of();
+    }
+
+    /**
+     * Fails the import with the given record errors, if any, in the same form
+     * as validation errors.
+     */
+    protected void rejectRecords(List<RecordError> errors) {
+        ValidationErrors validationErrors = new ValidationErrors();
+        validationErrors.addAll(errors);
+        validationErrors.throwIfAny();
+    }
+
+    /**
+     * Rejects a batch in which two records share an upsert key. An upsert
+     * statement may touch every stored row only once.
+     */
+    protected void rejectDuplicateKeys(T[] dtos) {
+        Map<UniqueKeyType, Set<String>> seen = new EnumMap<>(UniqueKeyType.class);
+        for (T dto : dtos) {
+            for (Map.Entry<UniqueKeyType, String> key : upsertKeys(dto).entrySet()) {
+                if (!seen.computeIfAbsent(key.getKey(), k -> new HashSet<>()).add(key.getValue())) {
+                    throw new BusinessValidationException(
+                            key.getKey().getLabel() + " '" + key.getValue() + "' is duplicated in import");
+                }
+            }
+        }
+    }
+
+    /**
+     * True if records are bulk-loaded with COPY rather than inserted row by row.
+     */
+    protected boolean isCopyImport() {
+        return false;
+    }
+
+    /**
+     * Where a streaming import writes to: the import its rows are tagged with
+     * and the import mode.
+     */
+    public record Target(Long importId, ImportMode mode) {
+        public static final Target NONE = new Target(null, ImportMode.INSERT);
+    }
+
+    /**
+     * Runs a single batch. Lets callers wrap every batch, e.g. in its own
+     * transaction for chunked commits.
+     */
+    @FunctionalInterface
+    public interface BatchRunner {
+        int run(int offset, int size, Callable<Integer> batch) throws Exception;
+    }
+
+    /**
+     * Streaming import: records are pulled from the reader and handed to
+     * {@link #doImportInternal} in batches of {@code import.batch-size}. Every
+     * batch is flushed and cleared from the persistence context once written,
+     * so heap usage depends on the batch size and not on the file size.
+     */
+    public int doImport(ImportRecordReader reader, User currentUser) throws Exception {
+        return doImport(reader, currentUser, importConfig.getBatchSize(), 0, (offset, size, batch) -> batch.call());
+    }
+
+    /**
+     * Streaming import starting at {@code startOffset}: the records before it are
+     * skipped without being bound, every following batch goes through
+     * {@code runner}.
+     */
+    public int doImport(ImportRecordReader reader, User currentUser, int batchSize, int startOffset,
+            BatchRunner runner) throws Exception {
+        return doImport(reader, currentUser, batchSize, startOffset, Target.NONE, runner);
+    }
+
+    /**
+     * Streaming import into the given target, see
+     * {@link #doImport(ImportRecordReader, User, int, int, BatchRunner)}.
+     */
+    public int doImport(ImportRecordReader reader, User currentUser, int batchSize, int startOffset,
+            Target target, BatchRunner runner) throws Exception {
+        batchSize = Math.max(1, batchSize);
+
+        int offset = 0;
+        while (offset < startOffset && reader.skip()) {
+            offset++;
+        }
+
+        List<T> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        T dto;
+        while ((dto = reader.next(type)) != null) {
+            batch.add(dto);
+            if (batch.size() == batchSize) {
+                count += runBatch(batch, offset, currentUser, target, runner);
+                offset += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            count += runBatch(batch, offset, currentUser, target, runner);
+            offset += batch.size();
+        }
 
-        // Validate
-        if (dtos == null || dtos.length == 0)
+        if (offset == 0)
             throw new IllegalArgumentException("Import file has no entities");
 
-        return doImportInternal(dtos, currentUser);
+        return count;
     }
 
-    protected void validateDto(T dto, int index) {
-        Set<ConstraintViolation<T>> violations = validator.validate(dto);
-        if (!violations.isEmpty()) {
-            String errors = violations.stream()
-                    .map(ConstraintViolation::getMessage)
-                    .collect(Collectors.joining(", "));
+    /**
+     * Pre-validation stage: parses the records from {@code startOffset} on and
+     * validates them in parallel, block by block, before any DB work starts.
+     * Every failing record is reported, not only the first one.
+     */
+    public void validateAll(ImportRecordReader reader, int startOffset) throws Exception {
+        int blockSize = Math.max(1, importConfig.getValidation().getBlockSize());
 
-            String prefix = index >= 0 ? "Record " + index + ": " : "";
-            throw new IllegalArgumentException(prefix + errors);
+        int offset = 0;
+        while (offset < startOffset && reader.skip()) {
+            offset++;
         }
+
+        ValidationErrors errors = new ValidationErrors();
+        List<T> block = new ArrayList<>(blockSize);
+        T dto;
+        while ((dto = reader.next(type)) != null) {
+            block.add(dto);
+            if (block.size() == blockSize) {
+                errors.addAll(parallelImportValidator.validate(block, offset));
+                offset += block.size();
+                block.clear();
+            }
+        }
+        if (!block.isEmpty()) {
+            errors.addAll(parallelImportValidator.validate(block, offset));
+        }
+        errors.throwIfAny();
+    }
+
+    /**
+     * Dry run: parses, validates and checks uniqueness and references of every
+     * record like a real import, but writes nothing. Unlike {@link #validateAll}
+     * it does not stop at invalid records, all of them are listed in the report.
+     * In {@link ImportMode#UPSERT} stored keys are not collisions, only keys
+     * repeated within the file are.
+     */
+    public ImportDryRunDto dryRun(ImportRecordReader reader, ImportMode mode) throws Exception {
+        long started = System.nanoTime();
+        int blockSize = Math.max(1, importConfig.getValidation().getBlockSize());
+        ImportConfig.DryRun settings = importConfig.getDryRun();
+
+        long parseNanos = 0;
+        long validateNanos = 0;
+        long uniquenessNanos = 0;
+        long rows = 0;
+        int offset = 0;
+        int rejectedCount = 0;
+        List<RejectedRecordDto> rejected = new ArrayList<>();
+        Map<UniqueKeyType, Set<String>> seenKeys = new EnumMap<>(UniqueKeyType.class);
+
+        List<T> block = new ArrayList<>(blockSize);
+        boolean exhausted = false;
+        while (!exhausted) {
+            long phase = System.nanoTime();
+            T dto;
+            while (block.size() < blockSize && (dto = reader.next(type)) != null) {
+                block.add(dto);
+            }
+            exhausted = block.size() < blockSize;
+            parseNanos += System.nanoTime() - phase;
+            if (block.isEmpty()) {
+                break;
+            }
+
+            phase = System.nanoTime();
+            Map<Integer, String> errors = new TreeMap<>();
+            for (RecordError error : parallelImportValidator.validate(block, offset)) {
+                errors.put(error.index(), error.message());
+            }
+            validateNanos += System.nanoTime() - phase;
+
+            phase = System.nanoTime();
+            for (RecordError error : checkUniqueKeys(block, offset, seenKeys, mode)) {
+                errors.merge(error.index(), error.message(), (a, b) -> a + ", " + b);
+            }
+            for (RecordError error : checkReferences(block, offset)) {
+                errors.merge(error.index(), error.message(), (a, b) -> a + ", " + b);
+            }
+            uniquenessNanos += System.nanoTime() - phase;
+
+            for (T record : block) {
+                rows += record != null ? rowCount(record) : 0;
+            }
+            for (Map.Entry<Integer, String> error : errors.entrySet()) {
+                if (rejected.size() < settings.getMaxRejected()) {
+                    rejected.add(new RejectedRecordDto(error.getKey(), error.getValue()));
+                }
+            }
+            rejectedCount += errors.size();
+            offset += block.size();
+            block.clear();
+        }
+
+        long rowMicros = isCopyImport() ? settings.getCopyRowWriteMicros() : settings.getRowWriteMicros();
+        return ImportDryRunDto.builder()
+                .recordCount(offset)
+                .rejectedCount(rejectedCount)
+                .rejected(rejected)
+                .rejectedTruncated(rejectedCount > rejected.size())
+                .parseMs(TimeUnit.NANOSECONDS.toMillis(parseNanos))
+                .validateMs(TimeUnit.NANOSECONDS.toMillis(validateNanos))
+                .uniquenessMs(TimeUnit.NANOSECONDS.toMillis(uniquenessNanos))
+                .estimatedWriteMs(rows * rowMicros / 1000)
+                .totalMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                .build();
+    }
+
+    // In-file duplicates are found in memory, stored ones with one query per key type and block
+    private List<RecordError> checkUniqueKeys(List<T> block, int offset, Map<UniqueKeyType, Set<String>> seenKeys,
+            ImportMode mode) {
+        boolean upsert = mode == ImportMode.UPSERT;
+        List<RecordError> errors = new ArrayList<>();
+        Map<UniqueKeyType, Map<String, Integer>> candidates = new EnumMap<>(UniqueKeyType.class);
+
+        for (int i = 0; i < block.size(); i++) {
+            if (block.get(i) == null) {
+                continue;
+            }
+            T dto = block.get(i);
+            for (Map.Entry<UniqueKeyType, String> key : (upsert ? upsertKeys(dto) : uniqueKeys(dto)).entrySet()) {
+                String value = key.getValue().trim();
+                if (!seenKeys.computeIfAbsent(key.getKey(), k -> new HashSet<>()).add(value)) {
+                    errors.add(new RecordError(offset + i,
+                            key.getKey().getLabel() + " '" + value + "' is duplicated in import"));
+                } else {
+                    candidates.computeIfAbsent(key.getKey(), k -> new HashMap<>()).put(value, offset + i);
+                }
+            }
+        }
+
+        if (upsert) {
+            return errors;
+        }
+        for (Map.Entry<UniqueKeyType, Map<String, Integer>> keys : candidates.entrySet()) {
+            for (String existing : entityResolutionService.findExistingKeys(keys.getKey(), keys.getValue().keySet())) {
+                errors.add(new RecordError(keys.getValue().get(existing),
+                        keys.getKey().getLabel() + " '" + existing + "' already exists"));
+            }
+        }
+        return errors;
+    }
+
+    // Collects failing records, keeping the message bounded for huge files
+    private class ValidationErrors {
+        private final List<RecordError> reported = new ArrayList<>();
+        private int failed;
+
+        void addAll(List<RecordError> errors) {
+            failed += errors.size();
+            int room = importConfig.getValidation().getMaxReportedErrors() - reported.size();
+            reported.addAll(errors.subList(0, Math.max(0, Math.min(room, errors.size()))));
+        }
+
+        void throwIfAny() {
+            if (failed == 0) {
+                return;
+            }
+            String message = failed + " invalid record(s): " + reported.stream()
+                    .map(RecordError::toString)
+                    .collect(Collectors.joining("; "));
+            if (failed > reported.size()) {
+                message += "; ... and " + (failed - reported.size()) + " more";
+            }
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private int runBatch(List<T> batch, int offset, User currentUser, Target target, BatchRunner runner)
+            throws Exception {
+        T[] dtos = toArray(batch);
+        Callable<Integer> write = target.mode() == ImportMode.UPSERT
+                ? () -> upserter().doUpsertInternal(dtos, offset, target.importId(), currentUser)
+                : () -> doImportInternal(dtos, offset, target.importId(), currentUser);
+        return runner.run(offset, dtos.length, () -> {
+            int count = write.call();
+            releaseBatch();
+            return count;
+        });
+    }
+
+    // Runs in the transaction of the batch, wherever the runner executes it
+    private void releaseBatch() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private UpsertImporter<T> upserter() {
+        if (!supportsUpsert()) {
+            throw new BusinessValidationException("Upsert is not supported for " + type.getSimpleName());
+        }
+        return (UpsertImporter<T>) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] toArray(List<T> batch) {
+        return batch.toArray((T[]) Array.newInstance(type, batch.size()));
     }
 }
@@ -0,0 +1,119 @@
+package com.itmo.ticketsystem.common.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.beanvalidation.SpringConstraintValidatorFactory;
+
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.validation.UniqueFieldValidator;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bean Validation of import records on a dedicated fork-join pool.
+ * <p>
+ * Only the DB-free constraints are checked here: {@code @UniqueField} would run
+ * one query per record, name uniqueness is checked by the importers instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParallelImportValidator {
+
+    private final ApplicationContext applicationContext;
+    private final ImportConfig importConfig;
+
+    private ForkJoinPool pool;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @PostConstruct
+    void init() {
+        int parallelism = importConfig.getValidation().getParallelism();
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+
+        validatorFactory = Validation.byDefaultProvider()
+                .configure()
+                .constraintValidatorFactory(new StructuralConstraintValidatorFactory(
+                        applicationContext.getAutowireCapableBeanFactory()))
+                .buildValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+        validatorFactory.close();
+    }
+
+    /**
+     * Validates all records in parallel.
+     *
+     * @param offset index of the first record within the whole file
+     * @return one error per failing record, in record order
+     */
+    public <T> List<RecordError> validate(List<T> records, int offset) throws InterruptedException {
+        try {
+            return pool.submit(() -> IntStream.range(0, records.size())
+                    .parallel()
+                    .mapToObj(i -> validateRecord(records.get(i), offset + i))
+                    .filter(Objects::nonNull)
+                    .toList())
+                    .get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Validation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private <T> RecordError validateRecord(T record, int index) {
+        if (record == null) {
+            return new RecordError(index, "record cannot be null");
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return new RecordError(index, violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", ")));
+    }
+
+    // Spring-aware factory that turns the DB-backed @UniqueField check into a no-op
+    private static class StructuralConstraintValidatorFactory extends SpringConstraintValidatorFactory {
+
+        StructuralConstraintValidatorFactory(AutowireCapableBeanFactory beanFactory) {
+            super(beanFactory);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+            if (key == UniqueFieldValidator.class) {
+                return (T) new UniqueFieldValidator(null) {
+                    @Override
+                    public boolean isValid(String value, ConstraintValidatorContext context) {
+                        return true;
+                    }
+                };
+            }
+            return super.getInstance(key);
+        }
+    }
+}
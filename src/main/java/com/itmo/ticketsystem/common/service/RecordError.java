@@ -0,0 +1,15 @@
+package com.itmo.ticketsystem.common.service;
+
+/**
+ * A rejected import record.
+ *
+ * @param index   index of the record within the whole file
+ * @param message why the record was rejected
+ */
+public record RecordError(int index, String message) {
+
+    @Override
+    public String toString() {
+        return "Record " + index + ": " + message;
+    }
+}
@@ -0,0 +1,20 @@
+package com.itmo.ticketsystem.common.service;
+
+/**
+ * Business unique keys that import records can collide on.
+ */
+public enum UniqueKeyType {
+    LOCATION_NAME("Location name"),
+    VENUE_NAME("Venue name"),
+    PASSPORT_ID("Passport ID");
+
+    private final String label;
+
+    UniqueKeyType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,17 @@
+package com.itmo.ticketsystem.common.service;
+
+import com.itmo.ticketsystem.common.ImportMode;
+import com.itmo.ticketsystem.user.User;
+
+/**
+ * Implemented by the {@link Importer}s whose entity has a natural key that
+ * {@link ImportMode#UPSERT} imports can merge on.
+ */
+public interface UpsertImporter<T> {
+
+    /**
+     * Upsert variant of {@link Importer#doImportInternal}: records whose natural
+     * key is already stored update that entity instead of being rejected.
+     */
+    int doUpsertInternal(T[] data, int offset, Long importId, User currentUser) throws Exception;
+}
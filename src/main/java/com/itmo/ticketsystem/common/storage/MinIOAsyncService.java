@@ -0,0 +1,224 @@
+package com.itmo.ticketsystem.common.storage;
+
+import io.minio.BucketExistsArgs;
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectTagsArgs;
+import io.minio.MakeBucketArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.SetObjectTagsArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking counterpart of {@link MinIOService} on {@link io.minio.MinioAsyncClient}:
+ * every call returns a {@link CompletableFuture} right away, so callers can
+ * compose storage calls without holding a thread per request.
+ * <p>
+ * At most {@code minio.max-in-flight} requests run at once, further calls wait
+ * in line without blocking their caller. The bucket is only looked up until it
+ * is known to exist.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MinIOAsyncService {
+
+    private final MinIOMultipartClient minioAsyncClient;
+    private final MinIOConfig minIOConfig;
+
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private volatile CompletableFuture<Void> bucketReady;
+
+    // Starts waiting calls, so they never run on the client thread that completed the previous request
+    private ExecutorService starter;
+
+    @PostConstruct
+    void init() {
+        starter = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        starter.shutdown();
+        starter.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Completes once the response headers arrive, the body is read from the
+     * returned stream.
+     */
+    public CompletableFuture<InputStream> downloadFile(String filePath) {
+        return inBucket(() -> minioAsyncClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(filePath)
+                        .build()))
+                .thenApply(response -> (InputStream) response);
+    }
+
+    public CompletableFuture<Void> deleteFile(String filePath) {
+        return inBucket(() -> minioAsyncClient.removeObject(
+                RemoveObjectArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(filePath)
+                        .build()))
+                .thenRun(() -> log.info("File deleted from MinIO: {}/{}", minIOConfig.getBucketName(), filePath));
+    }
+
+    public CompletableFuture<Void> copyFile(String sourcePath, String destPath) {
+        return inBucket(() -> minioAsyncClient.copyObject(
+                CopyObjectArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(destPath)
+                        .source(CopySource.builder()
+                                .bucket(minIOConfig.getBucketName())
+                                .object(sourcePath)
+                                .build())
+                        .build()))
+                .thenAccept(response -> log.info("File copied in MinIO: {} -> {}", sourcePath, destPath));
+    }
+
+    public CompletableFuture<Void> setTags(String filePath, Map<String, String> tags) {
+        return inBucket(() -> minioAsyncClient.setObjectTags(
+                SetObjectTagsArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(filePath)
+                        .tags(tags)
+                        .build()))
+                .thenRun(() -> log.info("File tagged in MinIO: {} {}", filePath, tags));
+    }
+
+    public CompletableFuture<Map<String, String>> getTags(String filePath) {
+        return inBucket(() -> minioAsyncClient.getObjectTags(
+                GetObjectTagsArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(filePath)
+                        .build()))
+                .thenApply(tags -> tags.get());
+    }
+
+    public CompletableFuture<Boolean> fileExists(String filePath) {
+        return inBucket(() -> minioAsyncClient.statObject(
+                StatObjectArgs.builder()
+                        .bucket(minIOConfig.getBucketName())
+                        .object(filePath)
+                        .build()))
+                .handle((stat, e) -> {
+                    if (e == null) {
+                        return true;
+                    }
+                    if (!(unwrap(e) instanceof ErrorResponseException)) {
+                        log.warn("Error checking file existence: {}", unwrap(e).getMessage());
+                    }
+                    return false;
+                });
+    }
+
+    /**
+     * True if a storage call failed because the object does not exist.
+     */
+    public static boolean isNoSuchKey(Throwable e) {
+        return unwrap(e) instanceof ErrorResponseException response
+                && "NoSuchKey".equals(response.errorResponse().code());
+    }
+
+    // Every object call waits for the bucket, which is created on first use. Calls that had to
+    // wait are started by the starter, not by the client thread that answered the lookup
+    private <T> CompletableFuture<T> inBucket(Callable<CompletableFuture<T>> call) {
+        CompletableFuture<Void> ready = ensureBucketExists();
+        return ready.isDone()
+                ? ready.thenCompose(found -> limited(call))
+                : ready.thenComposeAsync(found -> limited(call), starter);
+    }
+
+    // A lookup that failed is retried by the next call
+    private CompletableFuture<Void> ensureBucketExists() {
+        CompletableFuture<Void> ready = bucketReady;
+        if (ready == null || ready.isCompletedExceptionally()) {
+            String bucket = minIOConfig.getBucketName();
+            ready = limited(() -> minioAsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build()))
+                    .thenCompose(found -> found
+                            ? CompletableFuture.<Void>completedFuture(null)
+                            : limited(() -> minioAsyncClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build()))
+                                    .thenRun(() -> log.info("Created bucket: {}", bucket)));
+            bucketReady = ready;
+        }
+        return ready;
+    }
+
+    /**
+     * Starts {@code call} once fewer than {@code minio.max-in-flight} requests
+     * are running. The slot is handed to the next waiting call when the request
+     * completes, which is then started by {@link #starter}.
+     */
+    private <T> CompletableFuture<T> limited(Callable<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            try {
+                call.call().whenComplete((value, e) -> {
+                    release();
+                    if (e != null) {
+                        result.completeExceptionally(unwrap(e));
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            } catch (Exception e) {
+                release();
+                result.completeExceptionally(e);
+            }
+        };
+        synchronized (waiting) {
+            if (inFlight >= Math.max(1, minIOConfig.getMaxInFlight())) {
+                waiting.add(start);
+                return result;
+            }
+            inFlight++;
+        }
+        start.run();
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (waiting) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next == null) {
+            return;
+        }
+        try {
+            starter.execute(next);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            next.run();
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
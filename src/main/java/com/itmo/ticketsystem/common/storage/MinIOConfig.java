@@ -1,5 +1,6 @@
 package com.itmo.ticketsystem.common.storage;
 
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -16,6 +17,22 @@ public class MinIOConfig {
     private String secretKey;
     private String bucketName;
     private boolean secure;
+    // Multipart uploads: bytes per part (at least 5 MiB) and parts uploaded at once
+    private long partSize = 16L * 1024 * 1024;
+    private int uploadParallelism = 4;
+    private CommitStrategy commitStrategy = CommitStrategy.TAG;
+    // Requests of MinIOAsyncService running at once, further calls wait in line
+    private int maxInFlight = 32;
+
+    /**
+     * How staged import files are committed.
+     */
+    public enum CommitStrategy {
+        // Staged under a pending- key, copied to the final key and deleted on commit
+        COPY,
+        // Staged under the final key with a pending tag, commit only flips the tag
+        TAG
+    }
 
     @Bean
     public MinioClient minioClient() {
@@ -24,4 +41,12 @@ public class MinIOConfig {
                 .credentials(accessKey, secretKey)
                 .build();
     }
+
+    @Bean
+    public MinIOMultipartClient minioMultipartClient() {
+        return new MinIOMultipartClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .build());
+    }
 }
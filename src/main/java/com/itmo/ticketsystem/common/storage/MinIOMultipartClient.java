@@ -0,0 +1,42 @@
+package com.itmo.ticketsystem.common.storage;
+
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.UploadPartResponse;
+import io.minio.messages.Part;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Exposes the multipart upload calls of the S3 API, which {@link MinioAsyncClient}
+ * only offers to subclasses. Used by {@link MinIOMultipartUpload} to send
+ * several parts of one object at once.
+ */
+public class MinIOMultipartClient extends MinioAsyncClient {
+
+    public MinIOMultipartClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public CompletableFuture<String> createMultipartUpload(String bucket, String object,
+            Multimap<String, String> headers) throws Exception {
+        return createMultipartUploadAsync(bucket, null, object, headers, null)
+                .thenApply(response -> response.result().uploadId());
+    }
+
+    public CompletableFuture<UploadPartResponse> uploadPart(String bucket, String object, String uploadId,
+            int partNumber, byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucket, null, object, data, length, uploadId, partNumber, null, null);
+    }
+
+    public CompletableFuture<ObjectWriteResponse> completeMultipartUpload(String bucket, String object,
+            String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucket, null, object, uploadId, parts, null, null);
+    }
+
+    public CompletableFuture<Void> abortMultipartUpload(String bucket, String object, String uploadId)
+            throws Exception {
+        return abortMultipartUploadAsync(bucket, null, object, uploadId, null, null).thenApply(response -> null);
+    }
+}
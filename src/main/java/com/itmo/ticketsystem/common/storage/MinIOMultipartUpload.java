@@ -0,0 +1,227 @@
+package com.itmo.ticketsystem.common.storage;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Upload of one object as an output stream. Written bytes are cut into parts
+ * that are sent while the next part is filled, at most {@code parallelism} at
+ * a time, so memory stays bounded by {@code parallelism + 1} parts. An object
+ * that fits in one part is sent with a single PUT.
+ * <p>
+ * {@link #complete()} finishes the object; {@link #close()} without it aborts
+ * the upload, so a failed write leaves no object and no orphaned parts.
+ */
+@Slf4j
+public class MinIOMultipartUpload extends OutputStream {
+
+    // S3 minimum for every part but the last
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final MinIOMultipartClient client;
+    private final String bucket;
+    private final String object;
+    private final String contentType;
+    private final Map<String, String> tags;
+    private final int partSize;
+    private final Semaphore inFlight;
+    private final List<CompletableFuture<Part>> parts = new ArrayList<>();
+
+    private byte[] buffer;
+    private int buffered;
+    private String uploadId;
+    private volatile Throwable failure;
+    private boolean completed;
+    private boolean closed;
+
+    MinIOMultipartUpload(MinIOMultipartClient client, String bucket, String object, String contentType,
+            Map<String, String> tags, long partSize, int parallelism) {
+        this.client = client;
+        this.bucket = bucket;
+        this.object = object;
+        this.contentType = contentType;
+        this.tags = tags;
+        this.partSize = (int) Math.min(Math.max(partSize, MIN_PART_SIZE), Integer.MAX_VALUE - 8);
+        this.inFlight = new Semaphore(Math.max(1, parallelism));
+        this.buffer = new byte[this.partSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkWritable();
+        while (len > 0) {
+            int n = Math.min(len, partSize - buffered);
+            System.arraycopy(b, off, buffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+            if (buffered == partSize) {
+                sendPart();
+            }
+        }
+    }
+
+    /**
+     * Sends the last part and waits until the object is stored.
+     */
+    public void complete() throws IOException {
+        checkWritable();
+        CompletableFuture<?> request = null;
+        try {
+            if (uploadId == null) {
+                request = client.putObject(PutObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(object)
+                        .stream(new ByteArrayInputStream(buffer, 0, buffered), buffered, -1)
+                        .contentType(contentType)
+                        .tags(tags)
+                        .build());
+                request.get();
+            } else {
+                if (buffered > 0) {
+                    sendPart();
+                }
+                Part[] sent = new Part[parts.size()];
+                for (int i = 0; i < sent.length; i++) {
+                    sent[i] = await(parts.get(i));
+                }
+                request = client.completeMultipartUpload(bucket, object, uploadId, sent);
+                await(request);
+                log.debug("Multipart upload of {} completed: {} part(s)", object, sent.length);
+            }
+            completed = true;
+            buffer = null;
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (request != null) {
+                removeWhenStored(request);
+            }
+            throw new InterruptedIOException("Upload of " + object + " interrupted");
+        } catch (Exception e) {
+            throw new IOException("Failed to upload " + object + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer = null;
+        if (completed || uploadId == null) {
+            return;
+        }
+        // Parts still in flight would be stored after the abort otherwise
+        parts.forEach(part -> part.exceptionally(e -> null).join());
+        try {
+            client.abortMultipartUpload(bucket, object, uploadId).get();
+            log.info("Multipart upload of {} aborted", object);
+        } catch (Exception e) {
+            log.warn("Could not abort multipart upload of {}: {}", object, e.getMessage());
+        }
+    }
+
+    private void sendPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = await(client.createMultipartUpload(bucket, object, headers()));
+            }
+            inFlight.acquire();
+            checkWritable();
+
+            int partNumber = parts.size() + 1;
+            byte[] data = buffer;
+            int length = buffered;
+            buffer = new byte[partSize];
+            buffered = 0;
+
+            parts.add(client.uploadPart(bucket, object, uploadId, partNumber, data, length)
+                    .whenComplete((response, e) -> {
+                        inFlight.release();
+                        if (e != null) {
+                            failure = e;
+                        }
+                    })
+                    .thenApply(response -> new Part(partNumber, response.etag())));
+        } catch (IOException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload of " + object + " interrupted");
+        } catch (Exception e) {
+            throw new IOException("Failed to upload part of " + object + ": " + e.getMessage(), e);
+        }
+    }
+
+    // An interrupt does not stop a request already sent, the object it still stores is removed
+    private void removeWhenStored(CompletableFuture<?> request) {
+        request.thenCompose(response -> {
+            try {
+                return client.removeObject(RemoveObjectArgs.builder().bucket(bucket).object(object).build());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }).whenComplete((removed, e) -> {
+            if (e == null) {
+                log.info("Removed {}, stored after its upload was interrupted", object);
+            } else if (!request.isCompletedExceptionally()) {
+                log.warn("Could not remove {} after its upload was interrupted: {}", object, e.getMessage());
+            }
+        });
+    }
+
+    private Multimap<String, String> headers() {
+        if (tags.isEmpty()) {
+            return ImmutableMultimap.of("Content-Type", contentType);
+        }
+        String tagging = tags.entrySet().stream()
+                .map(tag -> URLEncoder.encode(tag.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(tag.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return ImmutableMultimap.of("Content-Type", contentType, "x-amz-tagging", tagging);
+    }
+
+    private void checkWritable() throws IOException {
+        if (closed || completed) {
+            throw new IOException("Upload of " + object + " is already " + (completed ? "completed" : "closed"));
+        }
+        if (failure != null) {
+            throw new IOException("Failed to upload part of " + object + ": " + failure.getMessage(), failure);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("Failed to upload " + object + ": " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package com.itmo.ticketsystem.common.storage;
 
 import io.minio.MinioClient;
-import io.minio.PutObjectArgs;
 import io.minio.GetObjectArgs;
 import io.minio.MakeBucketArgs;
-import io.minio.RemoveObjectArgs;
 import io.minio.BucketExistsArgs;
-import io.minio.CopyObjectArgs;
-import io.minio.CopySource;
+import io.minio.ListObjectsArgs;
+import io.minio.Result;
+import io.minio.GetPresignedObjectUrlArgs;
 import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
 import io.minio.errors.MinioException;
 import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -24,27 +33,21 @@ public class MinIOService {
 
     private final MinioClient minioClient;
     private final MinIOConfig minIOConfig;
+    private final MinIOMultipartClient minioMultipartClient;
 
-    public String uploadFile(String filePath, InputStream inputStream, String contentType, long size) throws Exception {
-        try {
-            ensureBucketExists();
-
-            // Upload
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(minIOConfig.getBucketName())
-                            .object(filePath)
-                            .stream(inputStream, size, -1)
-                            .contentType(contentType)
-                            .build());
+    // The bucket is only looked up until it is known to exist
+    private volatile boolean bucketReady;
 
-            log.info("File uploaded to MinIO: {}/{}", minIOConfig.getBucketName(), filePath);
-            return filePath;
-
-        } catch (MinioException e) {
-            log.error("Failed to upload file to MinIO: {}", e.getMessage(), e);
-            throw new Exception("Failed to upload file to MinIO: " + e.getMessage(), e);
-        }
+    /**
+     * Opens an upload to {@code filePath} that sends several parts at once, see
+     * {@link MinIOMultipartUpload}. The object exists once
+     * {@link MinIOMultipartUpload#complete()} has returned.
+     */
+    public MinIOMultipartUpload openUpload(String filePath, String contentType, Map<String, String> tags)
+            throws Exception {
+        ensureBucketExists();
+        return new MinIOMultipartUpload(minioMultipartClient, minIOConfig.getBucketName(), filePath, contentType,
+                tags, minIOConfig.getPartSize(), minIOConfig.getUploadParallelism());
     }
 
     public InputStream downloadFile(String filePath) throws Exception {
@@ -60,63 +63,96 @@ public class MinIOService {
         }
     }
 
-    public void deleteFile(String filePath) throws Exception {
+    public boolean fileExists(String filePath) {
         try {
-            minioClient.removeObject(
-                    RemoveObjectArgs.builder()
+            minioClient.statObject(
+                    StatObjectArgs.builder()
                             .bucket(minIOConfig.getBucketName())
                             .object(filePath)
                             .build());
-            log.info("File deleted from MinIO: {}/{}", minIOConfig.getBucketName(), filePath);
-        } catch (MinioException e) {
-            log.error("Failed to delete file from MinIO: {}", e.getMessage(), e);
-            throw new Exception("Failed to delete file from MinIO: " + e.getMessage(), e);
-        }
-    }
-
-    public void deleteFileSafe(String filePath) {
-        try {
-            deleteFile(filePath);
+            return true;
+        } catch (ErrorResponseException e) {
+            return false;
         } catch (Exception e) {
-            log.warn("Could not delete file: {}", filePath);
+            log.warn("Error checking file existence: {}", e.getMessage());
+            return false;
         }
     }
 
-    public void copyFile(String sourcePath, String destPath) throws Exception {
+    /**
+     * URL that lets a client PUT the object at {@code filePath} without
+     * credentials until {@code expiry} has passed.
+     */
+    public String presignedPutUrl(String filePath, Duration expiry) throws Exception {
         try {
-            minioClient.copyObject(
-                    CopyObjectArgs.builder()
+            ensureBucketExists();
+
+            return minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.PUT)
                             .bucket(minIOConfig.getBucketName())
-                            .object(destPath)
-                            .source(CopySource.builder()
-                                    .bucket(minIOConfig.getBucketName())
-                                    .object(sourcePath)
-                                    .build())
+                            .object(filePath)
+                            .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
                             .build());
-            log.info("File copied in MinIO: {} -> {}", sourcePath, destPath);
         } catch (MinioException e) {
-            log.error("Failed to copy file in MinIO: {}", e.getMessage(), e);
-            throw new Exception("Failed to copy file in MinIO: " + e.getMessage(), e);
+            log.error("Failed to presign upload URL: {}", e.getMessage(), e);
+            throw new Exception("Failed to presign upload URL: " + e.getMessage(), e);
         }
     }
 
-    public boolean fileExists(String filePath) {
+    /**
+     * Metadata (size, content type) of a stored object, empty if it does not exist.
+     */
+    public Optional<StatObjectResponse> statFile(String filePath) throws Exception {
         try {
-            minioClient.statObject(
+            return Optional.of(minioClient.statObject(
                     StatObjectArgs.builder()
                             .bucket(minIOConfig.getBucketName())
                             .object(filePath)
-                            .build());
-            return true;
+                            .build()));
         } catch (ErrorResponseException e) {
-            return false;
-        } catch (Exception e) {
-            log.warn("Error checking file existence: {}", e.getMessage());
-            return false;
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw new Exception("Failed to stat file in MinIO: " + e.getMessage(), e);
+        } catch (MinioException e) {
+            log.error("Failed to stat file in MinIO: {}", e.getMessage(), e);
+            throw new Exception("Failed to stat file in MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Paths of the objects under {@code prefix} last modified before
+     * {@code olderThan}, at most {@code limit} of them.
+     */
+    public List<String> listFiles(String prefix, ZonedDateTime olderThan, int limit) throws Exception {
+        List<String> paths = new ArrayList<>();
+        try {
+            for (Result<Item> result : minioClient.listObjects(
+                    ListObjectsArgs.builder()
+                            .bucket(minIOConfig.getBucketName())
+                            .prefix(prefix)
+                            .recursive(true)
+                            .build())) {
+                Item item = result.get();
+                if (!item.isDir() && item.lastModified().isBefore(olderThan)) {
+                    paths.add(item.objectName());
+                    if (paths.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+            return paths;
+        } catch (MinioException e) {
+            log.error("Failed to list files in MinIO: {}", e.getMessage(), e);
+            throw new Exception("Failed to list files in MinIO: " + e.getMessage(), e);
         }
     }
 
     private void ensureBucketExists() throws Exception {
+        if (bucketReady) {
+            return;
+        }
         try {
             boolean found = minioClient.bucketExists(
                     BucketExistsArgs.builder()
@@ -130,6 +166,7 @@ public class MinIOService {
                                 .build());
                 log.info("Created bucket: {}", minIOConfig.getBucketName());
             }
+            bucketReady = true;
         } catch (MinioException e) {
             log.error("Failed to ensure bucket exists: {}", e.getMessage(), e);
             throw new Exception("Failed to ensure bucket exists: " + e.getMessage(), e);
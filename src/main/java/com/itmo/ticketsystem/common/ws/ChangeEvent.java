@@ -11,10 +11,21 @@ public class ChangeEvent {
     public enum Operation {
         CREATE,
         UPDATE,
-        DELETE
+        DELETE,
+        // Aggregate of the rows of one entity type created by an import
+        BULK_IMPORT
     }
 
     private String entity;
     private Operation operation;
     private Long id;
+
+    // Aggregated events only: number of changed rows and the range of known ids
+    private Long count;
+    private Long minId;
+    private Long maxId;
+
+    public ChangeEvent(String entity, Operation operation, Long id) {
+        this(entity, operation, id, null, null, null);
+    }
 }
@@ -1,5 +1,8 @@
 package com.itmo.ticketsystem.common.ws;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
@@ -10,8 +13,79 @@ public class ChangeEventPublisher {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    // Changes buffered by the bulk scope open on the current thread, if any, per entity and operation
+    private final ThreadLocal<Map<String, ChangeEvent>> bulkChanges = new ThreadLocal<>();
+
     public void publish(String entity, ChangeEvent.Operation op, Long id) {
+        publish(entity, op, id, 1);
+    }
+
+    /**
+     * Publishes a change of {@code count} rows, e.g. a COPY batch without ids.
+     */
+    public void publish(String entity, ChangeEvent.Operation op, Long id, long count) {
+        Map<String, ChangeEvent> bulk = bulkChanges.get();
+        if (bulk != null) {
+            // Updates and deletes stay apart from the created rows, clients refresh the changed entities for them
+            ChangeEvent.Operation aggregated = op == ChangeEvent.Operation.CREATE
+                    ? ChangeEvent.Operation.BULK_IMPORT
+                    : op;
+            ChangeEvent aggregate = bulk.computeIfAbsent(entity + ":" + aggregated,
+                    key -> new ChangeEvent(entity, aggregated, null, 0L, null, null));
+            aggregate.setCount(aggregate.getCount() + count);
+            if (id != null) {
+                aggregate.setMinId(aggregate.getMinId() == null ? id : Math.min(aggregate.getMinId(), id));
+                aggregate.setMaxId(aggregate.getMaxId() == null ? id : Math.max(aggregate.getMaxId(), id));
+            }
+            return;
+        }
+
         ChangeEvent event = new ChangeEvent(entity, op, id);
         messagingTemplate.convertAndSend("/topic/changes", event);
     }
+
+    /**
+     * Starts buffering the events published on the current thread, e.g. for an
+     * import. Instead of one message per row, {@link BulkScope#publish()} sends
+     * one BULK_IMPORT event per entity type for the created rows, and one
+     * UPDATE or DELETE event without id per entity type for the changed ones.
+     * A nested call joins the open scope.
+     */
+    public BulkScope beginBulk() {
+        if (bulkChanges.get() != null) {
+            return new BulkScope(false);
+        }
+        bulkChanges.set(new LinkedHashMap<>());
+        return new BulkScope(true);
+    }
+
+    public class BulkScope implements AutoCloseable {
+        private final boolean owner;
+
+        private BulkScope(boolean owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Sends the aggregated events and ends the scope.
+         */
+        public void publish() {
+            if (!owner || bulkChanges.get() == null) {
+                return;
+            }
+            Map<String, ChangeEvent> bulk = bulkChanges.get();
+            bulkChanges.remove();
+            bulk.values().forEach(event -> messagingTemplate.convertAndSend("/topic/changes", event));
+        }
+
+        /**
+         * Ends the scope, discarding the events that were not published.
+         */
+        @Override
+        public void close() {
+            if (owner) {
+                bulkChanges.remove();
+            }
+        }
+    }
 }
@@ -16,7 +16,7 @@ import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "coordinates")
+@Table(name = "coordinates", indexes = @Index(name = "idx_coordinates_import_id", columnList = "import_id"))
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
@@ -40,6 +40,9 @@ public class Coordinates {
     @JoinColumn(name = "created_by")
     private User createdBy;
 
+    @Column(name = "import_id")
+    private Long importId;
+
     @OneToMany(mappedBy = "coordinates", cascade = CascadeType.ALL, orphanRemoval = true)
     // @JsonIgnore
     private List<Ticket> tickets = new ArrayList<>();
@@ -1,39 +1,61 @@
 package com.itmo.ticketsystem.coordinates;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.service.BulkCopyWriter;
 import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
 import com.itmo.ticketsystem.coordinates.dto.CoordinatesCreateDto;
 import com.itmo.ticketsystem.user.User;
-import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+
 @Service
 public class CoordinatesImportService extends Importer<CoordinatesCreateDto> {
 
+    private static final String[] COPY_COLUMNS = { "x", "y", "created_by", "import_id" };
+
     private final CoordinatesService coordinatesService;
+    private final BulkCopyWriter bulkCopyWriter;
+    private final ChangeEventPublisher changeEventPublisher;
 
     public CoordinatesImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            CoordinatesService coordinatesService) {
-        super(CoordinatesCreateDto.class, objectMapper, validator);
+            CoordinatesService coordinatesService,
+            BulkCopyWriter bulkCopyWriter,
+            ChangeEventPublisher changeEventPublisher) {
+        super(CoordinatesCreateDto.class);
         this.coordinatesService = coordinatesService;
+        this.bulkCopyWriter = bulkCopyWriter;
+        this.changeEventPublisher = changeEventPublisher;
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(CoordinatesCreateDto[] coordinatesDtos, User currentUser) throws Exception {
-        int count = 0;
+    protected int doImportInternal(CoordinatesCreateDto[] coordinatesDtos, int offset, Long importId,
+            User currentUser) throws Exception {
+        if (getImportConfig().isCopyEnabled()) {
+            return copyImport(coordinatesDtos, importId, currentUser);
+        }
+
         for (int i = 0; i < coordinatesDtos.length; i++) {
             CoordinatesCreateDto dto = coordinatesDtos[i];
-            validateDto(dto, i);
 
             // Use service layer to enforce business logic and uniqueness constraints
-            coordinatesService.createCoordinates(dto, currentUser);
-            count++;
+            coordinatesService.createCoordinates(dto, importId, currentUser);
         }
+        return coordinatesDtos.length;
+    }
+
+    @Override
+    protected boolean isCopyImport() {
+        return getImportConfig().isCopyEnabled();
+    }
+
+    private int copyImport(CoordinatesCreateDto[] coordinatesDtos, Long importId, User currentUser) {
+        long count = bulkCopyWriter.copy("coordinates", COPY_COLUMNS, coordinatesDtos,
+                dto -> new Object[] { dto.getX(), dto.getY(), currentUser.getId(), importId });
 
-        return count;
+        changeEventPublisher.publish("coordinates", ChangeEvent.Operation.CREATE, null, count);
+        return (int) count;
     }
 }
@@ -36,10 +36,21 @@ public class CoordinatesService {
 
     @Transactional
     public CoordinatesDto createCoordinates(CoordinatesCreateDto coordinatesCreateDto, User currentUser) {
+        return createCoordinates(coordinatesCreateDto, null, currentUser);
+    }
+
+    /**
+     * Import variant of {@link #createCoordinates(CoordinatesCreateDto, User)}:
+     * the row is tagged with the import that writes it.
+     */
+    @Transactional
+    public CoordinatesDto createCoordinates(CoordinatesCreateDto coordinatesCreateDto, Long importId,
+            User currentUser) {
         authorizationService.requireAuthenticated(currentUser);
 
         Coordinates coordinates = coordinatesMapper.toEntity(coordinatesCreateDto);
         coordinates.setCreatedBy(currentUser);
+        coordinates.setImportId(importId);
 
         Coordinates savedCoordinates = coordinatesRepository.save(coordinates);
         CoordinatesDto dto = coordinatesMapper.toDto(savedCoordinates);
@@ -1,39 +1,63 @@
 package com.itmo.ticketsystem.event;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.service.BulkCopyWriter;
 import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
 import com.itmo.ticketsystem.event.dto.EventCreateDto;
 import com.itmo.ticketsystem.user.User;
-import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+
 @Service
 public class EventImportService extends Importer<EventCreateDto> {
 
+    private static final String[] COPY_COLUMNS = { "name", "date", "min_age", "description", "created_by",
+            "import_id" };
+
     private final EventService eventService;
+    private final BulkCopyWriter bulkCopyWriter;
+    private final ChangeEventPublisher changeEventPublisher;
 
     public EventImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            EventService eventService) {
-        super(EventCreateDto.class, objectMapper, validator);
+            EventService eventService,
+            BulkCopyWriter bulkCopyWriter,
+            ChangeEventPublisher changeEventPublisher) {
+        super(EventCreateDto.class);
         this.eventService = eventService;
+        this.bulkCopyWriter = bulkCopyWriter;
+        this.changeEventPublisher = changeEventPublisher;
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(EventCreateDto[] eventDtos, User currentUser) throws Exception {
-        int count = 0;
+    protected int doImportInternal(EventCreateDto[] eventDtos, int offset, Long importId, User currentUser)
+            throws Exception {
+        if (getImportConfig().isCopyEnabled()) {
+            return copyImport(eventDtos, importId, currentUser);
+        }
+
         for (int i = 0; i < eventDtos.length; i++) {
             EventCreateDto dto = eventDtos[i];
-            validateDto(dto, i);
 
             // Use service layer to enforce business logic and uniqueness constraints
-            eventService.createEvent(dto, currentUser);
-            count++;
+            eventService.createEvent(dto, importId, currentUser);
         }
+        return eventDtos.length;
+    }
+
+    @Override
+    protected boolean isCopyImport() {
+        return getImportConfig().isCopyEnabled();
+    }
+
+    private int copyImport(EventCreateDto[] eventDtos, Long importId, User currentUser) {
+        long count = bulkCopyWriter.copy("events", COPY_COLUMNS, eventDtos,
+                dto -> new Object[] { dto.getName(), dto.getDate(), dto.getMinAge(), dto.getDescription(),
+                        currentUser.getId(), importId });
 
-        return count;
+        changeEventPublisher.publish("events", ChangeEvent.Operation.CREATE, null, count);
+        return (int) count;
     }
 }
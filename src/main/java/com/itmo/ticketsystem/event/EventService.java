@@ -36,10 +36,20 @@ public class EventService {
 
     @Transactional
     public EventDto createEvent(EventCreateDto eventCreateDto, User currentUser) {
+        return createEvent(eventCreateDto, null, currentUser);
+    }
+
+    /**
+     * Import variant of {@link #createEvent(EventCreateDto, User)}: the row is
+     * tagged with the import that writes it.
+     */
+    @Transactional
+    public EventDto createEvent(EventCreateDto eventCreateDto, Long importId, User currentUser) {
         authorizationService.requireAuthenticated(currentUser);
 
         Event event = eventMapper.toEntity(eventCreateDto);
         event.setCreatedBy(currentUser);
+        event.setImportId(importId);
         Event savedEvent = eventRepository.save(event);
         EventDto dto = eventMapper.toDto(savedEvent);
         changeEventPublisher.publish("events", ChangeEvent.Operation.CREATE, dto.getId());
@@ -0,0 +1,382 @@
+package com.itmo.ticketsystem.importhistory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
+import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressTracker;
+import com.itmo.ticketsystem.importhistory.metrics.ImportPhase;
+import com.itmo.ticketsystem.importhistory.metrics.ImportRunMetrics;
+import com.itmo.ticketsystem.importhistory.metrics.TimedImportRecordReader;
+import com.itmo.ticketsystem.importhistory.reader.ImportCompression;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
+import com.itmo.ticketsystem.importhistory.reader.ImportRecordReader;
+import com.itmo.ticketsystem.importhistory.reader.JsonImportRecordReader;
+import com.itmo.ticketsystem.user.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports a zip of entity files. The files are grouped into levels of the
+ * dependency DAG between entity types, a level is committed before the next
+ * one starts so dependent files see the rows of the files they depend on.
+ * <p>
+ * The files of one level are independent and run in parallel lanes, each in
+ * its own transaction on its own connection. A lane only commits once every
+ * lane of the level has written (and flushed) its files, so a failing file
+ * rolls the whole level back. The commits themselves are separate: a lane
+ * that fails while committing, e.g. on a lost connection, leaves the lanes
+ * that already committed in place.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveImportExecutor {
+
+    // Entity types whose rows must be committed before a file of the key type is imported
+    private static final Map<EntityType, Set<EntityType>> DEPENDENCIES = Map.of(
+            EntityType.PERSON, Set.of(EntityType.LOCATION),
+            EntityType.TICKET, Set.of(EntityType.COORDINATES, EntityType.LOCATION, EntityType.PERSON,
+                    EntityType.EVENT, EntityType.VENUE));
+
+    private final ImportExecutor importExecutor;
+    private final PlatformTransactionManager transactionManager;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final ObjectMapper objectMapper;
+    private final ImportConfig importConfig;
+
+    /**
+     * A file of the archive.
+     */
+    public record ArchiveEntry(String name, EntityType entityType, ImportFormat format) {
+    }
+
+    /**
+     * An opened archive: the upload spooled to a temp file for random access to
+     * its entries, and the entries grouped by dependency level.
+     */
+    public static class Archive implements AutoCloseable {
+        private final Path file;
+        private final ZipFile zipFile;
+        private final List<List<ArchiveEntry>> levels;
+
+        private Archive(Path file, ZipFile zipFile, List<List<ArchiveEntry>> levels) {
+            this.file = file;
+            this.zipFile = zipFile;
+            this.levels = levels;
+        }
+
+        public List<List<ArchiveEntry>> getLevels() {
+            return levels;
+        }
+
+        private InputStream open(ArchiveEntry entry) throws IOException {
+            return ImportCompression.decompress(zipFile.getInputStream(zipFile.getEntry(entry.name())));
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                zipFile.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    public Archive open(ImportRequestDto request, ImportProgressTracker progress) throws IOException {
+        Path file = Files.createTempFile("import-archive-", ".zip");
+        try {
+            try (InputStream inputStream = progress.track(request.getSource().getInputStream())) {
+                Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ZipFile zipFile = new ZipFile(file.toFile());
+            try {
+                return new Archive(file, zipFile, plan(zipFile));
+            } catch (RuntimeException | IOException e) {
+                zipFile.close();
+                throw e;
+            }
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Validation stage: every file from {@code startLevel} on is validated before
+     * any DB work starts.
+     */
+    public void validate(Archive archive, int startLevel, ImportRunMetrics metrics) {
+        long parseBefore = metrics.nanos(ImportPhase.PARSE);
+        long started = System.nanoTime();
+        try {
+            for (List<ArchiveEntry> level : archive.levels.subList(startLevel, archive.levels.size())) {
+                for (ArchiveEntry entry : level) {
+                    try (ImportRecordReader reader = openReader(archive, entry, metrics)) {
+                        importExecutor.getImporter(entry.entityType()).validateAll(reader, 0);
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException(entry.name() + ": " + e.getMessage(), e);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Import failed: " + entry.name() + ": " + e.getMessage(), e);
+                    }
+                }
+            }
+        } finally {
+            long parsed = metrics.nanos(ImportPhase.PARSE) - parseBefore;
+            metrics.add(ImportPhase.VALIDATE, System.nanoTime() - started - parsed);
+        }
+    }
+
+    /**
+     * Imports and commits one level of the archive.
+     *
+     * @return number of records imported by the level
+     */
+    public int executeLevel(Archive archive, int level, ImportRequestDto request, User currentUser,
+            ImportProgressTracker progress) {
+        List<List<ArchiveEntry>> lanes = lanes(archive.levels.get(level));
+        log.info("[2PC DB] COMMIT: archive level {} in {} lane(s): {}", level, lanes.size(), lanes);
+
+        LevelBarrier barrier = new LevelBarrier(lanes.size());
+        ExecutorService executor = Executors.newFixedThreadPool(lanes.size());
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (List<ArchiveEntry> lane : lanes) {
+                results.add(executor.submit(() -> runLane(archive, lane, request, currentUser, progress, barrier)));
+            }
+
+            int count = 0;
+            RuntimeException failure = null;
+            for (Future<Integer> result : results) {
+                try {
+                    count += result.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof RuntimeException runtime
+                                ? runtime
+                                : new RuntimeException(e.getCause().getMessage(), e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    barrier.fail();
+                    throw new IllegalStateException("Archive import interrupted", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return count;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int runLane(Archive archive, List<ArchiveEntry> lane, ImportRequestDto request, User currentUser,
+            ImportProgressTracker progress, LevelBarrier barrier) throws IOException {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // Change events of the lane are sent once its transaction has committed
+        try (ChangeEventPublisher.BulkScope changes = changeEventPublisher.beginBulk()) {
+            Integer count = tt.execute(txStatus -> {
+                int written = 0;
+                try {
+                    for (ArchiveEntry entry : lane) {
+                        written += importEntry(archive, entry, request, currentUser, progress);
+                    }
+                } catch (RuntimeException e) {
+                    barrier.fail();
+                    throw e;
+                }
+
+                if (!barrier.arriveAndAwait()) {
+                    // Another lane of the level failed, the level is rolled back as a whole
+                    txStatus.setRollbackOnly();
+                    return 0;
+                }
+                return written;
+            });
+            if (barrier.isFailed()) {
+                return 0;
+            }
+            changes.publish();
+            return count != null ? count : 0;
+        }
+    }
+
+    private int importEntry(Archive archive, ArchiveEntry entry, ImportRequestDto request, User currentUser,
+            ImportProgressTracker progress) {
+        Importer<?> importer = importExecutor.getImporter(entry.entityType());
+        try (ImportRecordReader reader = openReader(archive, entry, request.getMetrics())) {
+            int count = importer.doImport(reader, currentUser, importConfig.getBatchSize(), 0,
+                    ImportExecutor.target(request),
+                    importExecutor.tracked((offset, size, batch) -> batch.call(), request, progress));
+            log.debug("[2PC DB] COMMIT: archive entry {} imported {} {} record(s)",
+                    entry.name(), count, entry.entityType());
+            return count;
+        } catch (Exception e) {
+            throw new RuntimeException("Import failed: " + entry.name() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private ImportRecordReader openReader(Archive archive, ArchiveEntry entry, ImportRunMetrics metrics)
+            throws IOException {
+        return new TimedImportRecordReader(entry.format().open(objectMapper, archive.open(entry)), metrics);
+    }
+
+    // Groups the entries by entity type and spreads the types over at most import.archive.lanes lanes
+    private List<List<ArchiveEntry>> lanes(List<ArchiveEntry> level) {
+        Map<EntityType, List<ArchiveEntry>> byType = new EnumMap<>(EntityType.class);
+        for (ArchiveEntry entry : level) {
+            byType.computeIfAbsent(entry.entityType(), type -> new ArrayList<>()).add(entry);
+        }
+
+        int laneCount = Math.max(1, Math.min(importConfig.getArchive().getLanes(), byType.size()));
+        List<List<ArchiveEntry>> lanes = new ArrayList<>();
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayList<>());
+        }
+        int i = 0;
+        for (List<ArchiveEntry> entries : byType.values()) {
+            lanes.get(i++ % laneCount).addAll(entries);
+        }
+        return lanes;
+    }
+
+    private List<List<ArchiveEntry>> plan(ZipFile zipFile) throws IOException {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+            String baseName = baseName(zipEntry.getName());
+            if (zipEntry.isDirectory() || baseName.startsWith(".") || zipEntry.getName().startsWith("__MACOSX/")) {
+                continue;
+            }
+            ImportFormat format = ImportFormat.detect(null, baseName);
+            if (format.isArchive()) {
+                throw new IllegalArgumentException("Nested archives are not supported: " + zipEntry.getName());
+            }
+            entries.add(new ArchiveEntry(zipEntry.getName(), entityType(zipFile, zipEntry, format), format));
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Import archive has no entity files");
+        }
+
+        Map<EntityType, Integer> depths = new EnumMap<>(EntityType.class);
+        Set<EntityType> present = entries.stream().map(ArchiveEntry::entityType)
+                .collect(Collectors.toSet());
+        Map<Integer, List<ArchiveEntry>> levels = new TreeMap<>();
+        for (ArchiveEntry entry : entries) {
+            levels.computeIfAbsent(depth(entry.entityType(), present, depths), depth -> new ArrayList<>())
+                    .add(entry);
+        }
+        return new ArrayList<>(levels.values());
+    }
+
+    // Longest chain of dependencies present in the archive
+    private int depth(EntityType type, Set<EntityType> present, Map<EntityType, Integer> depths) {
+        Integer known = depths.get(type);
+        if (known != null) {
+            return known;
+        }
+        int depth = 0;
+        for (EntityType dependency : DEPENDENCIES.getOrDefault(type, Set.of())) {
+            if (present.contains(dependency)) {
+                depth = Math.max(depth, depth(dependency, present, depths) + 1);
+            }
+        }
+        depths.put(type, depth);
+        return depth;
+    }
+
+    // JSON files name their entity type in the header, other files by their name, e.g. persons.ndjson.gz
+    private EntityType entityType(ZipFile zipFile, ZipEntry zipEntry, ImportFormat format) throws IOException {
+        if (format.hasEntityTypeHeader()) {
+            try (JsonImportRecordReader reader = new JsonImportRecordReader(objectMapper,
+                    ImportCompression.decompress(zipFile.getInputStream(zipEntry)))) {
+                EntityType type = reader.readEntityType();
+                if (type != null) {
+                    return type;
+                }
+            }
+        }
+
+        String name = baseName(ImportCompression.stripExtension(zipEntry.getName())).toLowerCase(Locale.ROOT);
+        int dot = name.indexOf('.');
+        String stem = dot >= 0 ? name.substring(0, dot) : name;
+        for (EntityType type : EntityType.values()) {
+            String typeName = type.name().toLowerCase(Locale.ROOT);
+            if (type != EntityType.ARCHIVE && (stem.equals(typeName) || stem.equals(typeName + "s"))) {
+                return type;
+            }
+        }
+        if (stem.equals("people")) {
+            return EntityType.PERSON;
+        }
+        throw new IllegalArgumentException("Cannot tell the entity type of archive entry " + zipEntry.getName()
+                + ", name it after the entity type, e.g. tickets.ndjson");
+    }
+
+    private static String baseName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    // Holds the lanes of a level before their commits until all of them have written their files
+    private static class LevelBarrier {
+        private final CountDownLatch arrived;
+        private volatile boolean failed;
+
+        LevelBarrier(int lanes) {
+            arrived = new CountDownLatch(lanes);
+        }
+
+        void fail() {
+            failed = true;
+            arrived.countDown();
+        }
+
+        boolean arriveAndAwait() {
+            arrived.countDown();
+            try {
+                arrived.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed = true;
+            }
+            return !failed;
+        }
+
+        boolean isFailed() {
+            return failed;
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.itmo.ticketsystem.importhistory;
 
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
+import com.itmo.ticketsystem.common.ImportStatus;
 import com.itmo.ticketsystem.common.controller.BaseController;
 import com.itmo.ticketsystem.common.exceptions.BadRequestException;
 import com.itmo.ticketsystem.common.exceptions.NotFoundException;
+import com.itmo.ticketsystem.importhistory.dto.ImportDryRunDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportHistoryDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportPartitionDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportProgressDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportResultDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportRevertDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportUploadDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
@@ -14,8 +21,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/import")
@@ -25,14 +34,82 @@ public class ImportController extends BaseController {
     private final ImportService importService;
 
     @PostMapping
-    public ResponseEntity<ImportResultDto> importEntities(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<ImportResultDto> importEntities(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "entityType", required = false) EntityType entityType,
+            @RequestParam(value = "mode", defaultValue = "INSERT") ImportMode mode,
+            @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+            @RequestParam(value = "partitions", required = false) Integer partitions,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
         if (file.isEmpty()) {
             throw new BadRequestException("Import failed", "File not found");
         }
-        ImportResultDto result = importService.importEntities(file, getCurrentUser());
+        if (async) {
+            ImportResultDto result = importService.submitImport(file, entityType, mode, chunkSize, partitions,
+                    getCurrentUser());
+            return result.getStatus() == ImportStatus.FAILED
+                    ? ResponseEntity.ok(result)
+                    : ResponseEntity.accepted().body(result);
+        }
+        ImportResultDto result = importService.importEntities(file, entityType, mode, chunkSize, partitions,
+                getCurrentUser());
         return ResponseEntity.ok(result);
     }
 
+    // Direct upload: the client PUTs the file to the returned URL, then starts the import
+    @PostMapping("/uploads")
+    public ResponseEntity<ImportUploadDto> createUpload(@RequestParam("fileName") String fileName) {
+        return ResponseEntity.ok(importService.createUpload(fileName, getCurrentUser()));
+    }
+
+    @PostMapping("/uploads/{uploadId}/start")
+    public ResponseEntity<ImportResultDto> startUploadedImport(
+            @PathVariable UUID uploadId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "entityType", required = false) EntityType entityType,
+            @RequestParam(value = "mode", defaultValue = "INSERT") ImportMode mode,
+            @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+            @RequestParam(value = "partitions", required = false) Integer partitions,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        ImportResultDto result = importService.startUploadedImport(uploadId, fileName, entityType, mode, chunkSize,
+                partitions, async, getCurrentUser());
+        return async && result.getStatus() != ImportStatus.FAILED
+                ? ResponseEntity.accepted().body(result)
+                : ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/dry-run")
+    public ResponseEntity<ImportDryRunDto> dryRunImport(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "entityType", required = false) EntityType entityType,
+            @RequestParam(value = "mode", defaultValue = "INSERT") ImportMode mode) {
+        if (file.isEmpty()) {
+            throw new BadRequestException("Import failed", "File not found");
+        }
+        return ResponseEntity.ok(importService.dryRunImport(file, entityType, mode, getCurrentUser()));
+    }
+
+    @GetMapping("/history/{id}/progress")
+    public ResponseEntity<ImportProgressDto> getImportProgress(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.getImportProgress(id, getCurrentUser()));
+    }
+
+    @GetMapping("/history/{id}/partitions")
+    public ResponseEntity<List<ImportPartitionDto>> getImportPartitions(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.getImportPartitions(id, getCurrentUser()));
+    }
+
+    @PostMapping("/history/{id}/resume")
+    public ResponseEntity<ImportResultDto> resumeImport(@PathVariable Long id) {
+        ImportResultDto result = importService.resumeImport(id, getCurrentUser());
+        return ResponseEntity.ok(result);
+    }
+
+    @PostMapping("/history/{id}/revert")
+    public ResponseEntity<ImportRevertDto> revertImport(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.revertImport(id, getCurrentUser()));
+    }
+
     @GetMapping("/history/{entityType}")
     public ResponseEntity<List<ImportHistoryDto>> getImportHistory(
             @PathVariable EntityType entityType) {
@@ -41,23 +118,22 @@ public class ImportController extends BaseController {
     }
 
     @GetMapping("/history/{id}/download")
-    public ResponseEntity<InputStreamResource> downloadImportFile(@PathVariable Long id) {
+    public CompletableFuture<ResponseEntity<InputStreamResource>> downloadImportFile(@PathVariable Long id) {
         ImportHistoryDto history = importService.getImportHistoryById(id, getCurrentUser());
 
         if (history.getFilePath() == null || history.getFilePath().isEmpty()) {
             throw new NotFoundException("File not found for import history ID: " + id);
         }
 
-        try {
-            InputStream fileStream = importService.downloadImportFile(history.getFilePath());
-            String fileName = history.getFileName() != null ? history.getFileName() : "import.json";
-
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(new InputStreamResource(fileStream));
-        } catch (Exception e) {
-            throw new NotFoundException("Failed to download file: " + e.getMessage());
-        }
+        String fileName = history.getFileName() != null ? history.getFileName() : "import.json";
+        return importService.downloadImportFile(history.getFilePath())
+                .thenApply(fileStream -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new InputStreamResource(fileStream)))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    throw new NotFoundException("Failed to download file: " + cause.getMessage());
+                });
     }
 }
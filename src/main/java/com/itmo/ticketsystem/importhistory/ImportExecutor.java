@@ -1,13 +1,24 @@
 package com.itmo.ticketsystem.importhistory;
 
+import java.io.InputStream;
+
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.config.ImportConfig;
 import com.itmo.ticketsystem.common.service.Importer;
 import com.itmo.ticketsystem.coordinates.CoordinatesImportService;
 import com.itmo.ticketsystem.event.EventImportService;
+import com.itmo.ticketsystem.importhistory.dto.ImportDryRunDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressTracker;
+import com.itmo.ticketsystem.importhistory.metrics.ImportPhase;
+import com.itmo.ticketsystem.importhistory.metrics.ImportRunMetrics;
+import com.itmo.ticketsystem.importhistory.metrics.TimedImportRecordReader;
+import com.itmo.ticketsystem.importhistory.reader.ImportCompression;
+import com.itmo.ticketsystem.importhistory.reader.ImportRecordReader;
 import com.itmo.ticketsystem.location.LocationImportService;
 import com.itmo.ticketsystem.person.PersonImportService;
 import com.itmo.ticketsystem.ticket.TicketImportService;
@@ -25,18 +36,136 @@ public class ImportExecutor {
     private final PersonImportService personImportService;
     private final LocationImportService locationImportService;
     private final CoordinatesImportService coordinatesImportService;
+    private final ObjectMapper objectMapper;
+    private final ImportConfig importConfig;
+
+    /**
+     * Validation stage of a streaming import: a separate pass over the file,
+     * outside any transaction, so no DB work is done for a file with bad records.
+     */
+    public void validate(ImportRequestDto importRequest, int startOffset) {
+        InputStream inputStream;
+        try {
+            inputStream = openSource(importRequest);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Import failed: " + e.getMessage(), e);
+        }
+        validate(importRequest, inputStream, startOffset);
+    }
+
+    /**
+     * Validation stage on a stream the caller already has open, e.g. one pass
+     * over an upload that is staged at the same time.
+     */
+    public void validate(ImportRequestDto importRequest, InputStream inputStream) {
+        validate(importRequest, inputStream, 0);
+    }
+
+    private void validate(ImportRequestDto importRequest, InputStream inputStream, int startOffset) {
+        Importer<?> importer = getImporter(importRequest.getEntityType());
+        ImportRunMetrics metrics = importRequest.getMetrics();
+        long parseBefore = metrics.nanos(ImportPhase.PARSE);
+        long started = System.nanoTime();
+        try (ImportRecordReader reader = new TimedImportRecordReader(importRequest.getFormat().open(objectMapper,
+                ImportCompression.decompress(inputStream)), metrics)) {
+            importer.validateAll(reader, startOffset);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Import failed: " + e.getMessage(), e);
+        } finally {
+            // Validation time without the parsing done by this pass (approximate when the import parses
+            // at the same time, as in a pipelined import)
+            long parsed = metrics.nanos(ImportPhase.PARSE) - parseBefore;
+            metrics.add(ImportPhase.VALIDATE, Math.max(0, System.nanoTime() - started - parsed));
+        }
+    }
+
+    /**
+     * Dry run of a streaming import: no transaction, no writes, nothing is
+     * recorded. Uniqueness lookups are plain reads without locks.
+     */
+    public ImportDryRunDto dryRun(ImportRequestDto importRequest) {
+        Importer<?> importer = getImporter(importRequest.getEntityType());
+        try (ImportRecordReader reader = importRequest.getFormat().open(objectMapper,
+                ImportCompression.decompress(openSource(importRequest)))) {
+            ImportDryRunDto result = importer.dryRun(reader, importRequest.getMode());
+            result.setEntityType(importRequest.getEntityType());
+            result.setFormat(importRequest.getFormat());
+            return result;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Import failed: " + e.getMessage(), e);
+        }
+    }
 
     @Transactional
-    public int executeImport(ImportRequestDto importRequest, User currentUser) {
+    public int executeImport(ImportRequestDto importRequest, User currentUser, ImportProgressTracker progress) {
         Importer<?> importer = getImporter(importRequest.getEntityType());
         try {
-            return importer.doImport(importRequest.getData(), currentUser);
+            try (ImportRecordReader reader = openReader(importRequest, progress)) {
+                return importer.doImport(reader, currentUser, importConfig.getBatchSize(), 0, target(importRequest),
+                        tracked((offset, size, batch) -> batch.call(), importRequest, progress));
+            } finally {
+                importRequest.getMetrics().setBytesRead(progress.getBytesRead());
+            }
         } catch (Exception e) {
             throw new RuntimeException("Import failed: " + e.getMessage(), e);
         }
     }
 
-    private Importer<?> getImporter(EntityType entityType) {
+    /**
+     * Chunked import: not transactional on purpose, every batch is committed by
+     * {@code batchRunner} on its own.
+     */
+    public int executeChunkedImport(ImportRequestDto importRequest, User currentUser, int startOffset,
+            Importer.BatchRunner batchRunner, ImportProgressTracker progress) {
+        Importer<?> importer = getImporter(importRequest.getEntityType());
+        try (ImportRecordReader reader = openReader(importRequest, progress)) {
+            return importer.doImport(reader, currentUser, importRequest.getChunkSize(), startOffset,
+                    target(importRequest), tracked(batchRunner, importRequest, progress));
+        } catch (Exception e) {
+            throw new RuntimeException("Import failed: " + e.getMessage(), e);
+        } finally {
+            importRequest.getMetrics().setBytesRead(progress.getBytesRead());
+        }
+    }
+
+    ImportRecordReader openReader(ImportRequestDto importRequest, ImportProgressTracker progress)
+            throws Exception {
+        // Progress counts raw (possibly compressed) bytes, as the upload size does
+        InputStream inputStream = progress.track(openSource(importRequest));
+        return new TimedImportRecordReader(
+                importRequest.getFormat().open(objectMapper, ImportCompression.decompress(inputStream)),
+                importRequest.getMetrics());
+    }
+
+    private InputStream openSource(ImportRequestDto importRequest) throws Exception {
+        if (importRequest.getSource() == null) {
+            throw new IllegalArgumentException("Import request has neither data nor source");
+        }
+        return importRequest.getSource().getInputStream();
+    }
+
+    Importer.BatchRunner tracked(Importer.BatchRunner runner, ImportRequestDto importRequest,
+            ImportProgressTracker progress) {
+        ImportRunMetrics metrics = importRequest.getMetrics();
+        return (offset, size, batch) -> {
+            int count = metrics.time(ImportPhase.DB_WRITE, () -> runner.run(offset, size, batch));
+            metrics.onBatch(size);
+            progress.onBatch(size);
+            return count;
+        };
+    }
+
+    static Importer.Target target(ImportRequestDto importRequest) {
+        return new Importer.Target(importRequest.getImportId(), importRequest.getMode());
+    }
+
+    Importer<?> getImporter(EntityType entityType) {
         return switch (entityType) {
             case TICKET -> ticketImportService;
             case EVENT -> eventImportService;
@@ -1,7 +1,9 @@
 package com.itmo.ticketsystem.importhistory;
 
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
 import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
 import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
 import com.itmo.ticketsystem.user.User;
 import jakarta.persistence.*;
@@ -15,7 +17,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "import_history")
+@Table(name = "import_history", indexes = {
+        @Index(name = "idx_import_history_user_content_hash", columnList = "user_id, content_hash")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -52,6 +56,22 @@ public class ImportHistory {
     @Column(name = "created_count")
     private Integer createdCount;
 
+    // Chunked imports: records per committed chunk (null for single-transaction imports)
+    @Column(name = "chunk_size")
+    private Integer chunkSize;
+
+    // Chunked imports: number of records already committed, resume point after a failure
+    @Column(name = "committed_offset")
+    private Integer committedOffset;
+
+    // Partitioned imports: number of partitions, results in import_partition (null for other imports)
+    @Column(name = "partitions")
+    private Integer partitions;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "mode")
+    private ImportMode mode; // Import mode (null = INSERT)
+
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
@@ -64,6 +84,48 @@ public class ImportHistory {
     @Column(name = "file_name")
     private String fileName; // Original filename
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format")
+    private ImportFormat format; // Format of the uploaded file (null = JSON)
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the uploaded bytes, hex
+
+    @Column(name = "file_size")
+    private Long fileSize; // Size of the uploaded file in bytes
+
+    // Run metrics, see ImportMetricsService
+    @Column(name = "parse_ms")
+    private Long parseMs;
+
+    @Column(name = "validate_ms")
+    private Long validateMs;
+
+    @Column(name = "db_write_ms")
+    private Long dbWriteMs;
+
+    @Column(name = "minio_prepare_ms")
+    private Long minioPrepareMs;
+
+    @Column(name = "minio_commit_ms")
+    private Long minioCommitMs;
+
+    @Column(name = "bytes_read")
+    private Long bytesRead;
+
+    @Column(name = "records_per_second")
+    private Double recordsPerSecond;
+
+    @Column(name = "peak_heap_delta_bytes")
+    private Long peakHeapDeltaBytes;
+
+    // Async jobs: node that claimed the job from the queue
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
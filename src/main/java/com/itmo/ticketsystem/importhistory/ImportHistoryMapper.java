@@ -1,6 +1,8 @@
 package com.itmo.ticketsystem.importhistory;
 
 import com.itmo.ticketsystem.importhistory.dto.ImportHistoryDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportPartitionDto;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartition;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -18,10 +20,39 @@ public class ImportHistoryMapper {
                 .username(importHistory.getUser().getUsername())
                 .userId(importHistory.getUser().getId())
                 .createdCount(importHistory.getCreatedCount())
+                .transactionStatus(importHistory.getTransactionStatus())
+                .committedOffset(importHistory.getCommittedOffset())
+                .partitions(importHistory.getPartitions())
+                .mode(importHistory.getMode())
                 .errorMessage(importHistory.getErrorMessage())
                 .filePath(importHistory.getFilePath())
                 .fileName(importHistory.getFileName())
                 .createdAt(importHistory.getCreatedAt())
+                .parseMs(importHistory.getParseMs())
+                .validateMs(importHistory.getValidateMs())
+                .dbWriteMs(importHistory.getDbWriteMs())
+                .minioPrepareMs(importHistory.getMinioPrepareMs())
+                .minioCommitMs(importHistory.getMinioCommitMs())
+                .bytesRead(importHistory.getBytesRead())
+                .recordsPerSecond(importHistory.getRecordsPerSecond())
+                .peakHeapDeltaBytes(importHistory.getPeakHeapDeltaBytes())
+                .build();
+    }
+
+    public ImportPartitionDto toDto(ImportPartition partition) {
+        if (partition == null) {
+            return null;
+        }
+
+        return ImportPartitionDto.builder()
+                .partitionIndex(partition.getPartitionIndex())
+                .partitionCount(partition.getPartitionCount())
+                .status(partition.getStatus())
+                .recordCount(partition.getRecordCount())
+                .createdCount(partition.getCreatedCount())
+                .errorMessage(partition.getErrorMessage())
+                .startedAt(partition.getStartedAt())
+                .finishedAt(partition.getFinishedAt())
                 .build();
     }
 }
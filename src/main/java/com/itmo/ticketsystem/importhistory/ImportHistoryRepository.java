@@ -1,10 +1,15 @@
 package com.itmo.ticketsystem.importhistory;
 
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
 import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,5 +25,33 @@ public interface ImportHistoryRepository extends JpaRepository<ImportHistory, Lo
 
     List<ImportHistory> findByTransactionStatusIn(List<TransactionState> statuses);
 
+    // Recovery: finished transactions whose staged file is still tracked
+    List<ImportHistory> findByTransactionStatusInAndPendingFilePathIsNotNull(List<TransactionState> statuses);
+
+    // Recovery: rows of a transaction that is still running are locked by it and skipped
+    @Query(value = "SELECT * FROM import_history WHERE id = :id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<ImportHistory> lockForRecovery(@Param("id") Long id);
+
+    boolean existsByTransactionId(UUID transactionId);
+
     List<ImportHistory> findByUserIdAndTransactionStatusIn(Long userId, List<TransactionState> statuses);
+
+    /**
+     * Fair queue: the oldest job of the user with the fewest running imports is
+     * taken first, users already running {@code maxRunningPerUser} imports are
+     * skipped. Jobs locked by another node are skipped instead of waited for.
+     */
+    @Query(value = "SELECT h.* FROM import_history h "
+            + "CROSS JOIN LATERAL (SELECT count(*) AS running FROM import_history r "
+            + "    WHERE r.user_id = h.user_id AND r.transaction_status IN ('PREPARED', 'COMMITTING')) u "
+            + "WHERE h.transaction_status = 'QUEUED' AND u.running < :maxRunningPerUser "
+            + "ORDER BY u.running, h.created_at LIMIT 1 FOR UPDATE OF h SKIP LOCKED", nativeQuery = true)
+    Optional<ImportHistory> lockNextQueued(@Param("maxRunningPerUser") int maxRunningPerUser);
+
+    // Idempotency: the same bytes only repeat an import of the same entity type and mode
+    Optional<ImportHistory> findFirstByUserIdAndContentHashAndEntityTypeAndModeAndCreatedAtAfterAndTransactionStatusNotInOrderByCreatedAtDesc(
+            Long userId, String contentHash, EntityType entityType, ImportMode mode, LocalDateTime createdAfter,
+            Collection<TransactionState> transactionStatuses);
+
+    long countByUserIdAndTransactionStatusIn(Long userId, Collection<TransactionState> transactionStatuses);
 }
@@ -0,0 +1,142 @@
+package com.itmo.ticketsystem.importhistory;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.itmo.ticketsystem.common.exceptions.ConflictException;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
+import com.itmo.ticketsystem.coordinates.Coordinates;
+import com.itmo.ticketsystem.event.Event;
+import com.itmo.ticketsystem.importhistory.dto.ImportRevertDto;
+import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
+import com.itmo.ticketsystem.location.Location;
+import com.itmo.ticketsystem.person.Person;
+import com.itmo.ticketsystem.ticket.Ticket;
+import com.itmo.ticketsystem.venue.Venue;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reverts an import: the rows it created (tagged with its {@code import_id}) are
+ * removed with one set-based DELETE per table, referencing tables first, in a
+ * single transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportRevertService {
+
+    private record LineageTable(String table, Class<?> entityType) {
+    }
+
+    private record ForeignKey(String table, String column, String referenced) {
+    }
+
+    // Delete order: a table comes before the tables it references
+    private static final List<LineageTable> TABLES = List.of(
+            new LineageTable("tickets", Ticket.class),
+            new LineageTable("persons", Person.class),
+            new LineageTable("coordinates", Coordinates.class),
+            new LineageTable("events", Event.class),
+            new LineageTable("venues", Venue.class),
+            new LineageTable("locations", Location.class));
+
+    private static final List<ForeignKey> FOREIGN_KEYS = List.of(
+            new ForeignKey("tickets", "coordinates_id", "coordinates"),
+            new ForeignKey("tickets", "person_id", "persons"),
+            new ForeignKey("tickets", "event_id", "events"),
+            new ForeignKey("tickets", "venue_id", "venues"),
+            new ForeignKey("persons", "location_id", "locations"));
+
+    private final ImportHistoryRepository importHistoryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ChangeEventPublisher changeEventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ImportRevertDto revert(Long importId) {
+        long started = System.nanoTime();
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+
+        // One BULK_IMPORT event per table, sent after the deletes have committed
+        try (ChangeEventPublisher.BulkScope changes = changeEventPublisher.beginBulk()) {
+            Map<String, Integer> deleted = tt.execute(txStatus -> {
+                ImportHistory history = importHistoryRepository.findById(importId)
+                        .orElseThrow(() -> new IllegalStateException("Import history not found: " + importId));
+                if (history.getTransactionStatus() != TransactionState.COMMITTED
+                        && history.getTransactionStatus() != TransactionState.SUSPENDED) {
+                    throw new ConflictException("Import cannot be reverted",
+                            "Import is in state " + history.getTransactionStatus()
+                                    + ", only COMMITTED and SUSPENDED imports can be reverted");
+                }
+                checkNotReferenced(importId);
+
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                for (LineageTable lineage : TABLES) {
+                    int count = delete(lineage, importId);
+                    counts.put(lineage.table(), count);
+                    if (count > 0) {
+                        changeEventPublisher.publish(lineage.table(), ChangeEvent.Operation.DELETE, null, count);
+                    }
+                }
+
+                history.setTransactionStatus(TransactionState.REVERTED);
+                history.setUpdatedAt(LocalDateTime.now());
+                importHistoryRepository.save(history);
+                return counts;
+            });
+            changes.publish();
+
+            int total = deleted.values().stream().mapToInt(Integer::intValue).sum();
+            log.info("Import {} reverted: {} rows deleted {}", importId, total, deleted);
+            return ImportRevertDto.builder()
+                    .importId(importId)
+                    .deletedCount(total)
+                    .deleted(deleted)
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                    .build();
+        } catch (PersistenceException e) {
+            // A row referencing the import was written after the check
+            throw new ConflictException("Import cannot be reverted", e.getMessage());
+        }
+    }
+
+    // Rows created outside the import (by hand or by a later import) that still point at its rows
+    private void checkNotReferenced(Long importId) {
+        for (ForeignKey key : FOREIGN_KEYS) {
+            Number references = (Number) entityManager.createNativeQuery("SELECT count(*) FROM " + key.table()
+                    + " c JOIN " + key.referenced() + " r ON c." + key.column() + " = r.id"
+                    + " WHERE r.import_id = :importId AND (c.import_id IS NULL OR c.import_id <> :importId)")
+                    .setParameter("importId", importId)
+                    .getSingleResult();
+            if (references.longValue() > 0) {
+                throw new ConflictException("Import cannot be reverted", references + " " + key.table()
+                        + " not created by this import reference its " + key.referenced()
+                        + ", delete or revert them first");
+            }
+        }
+    }
+
+    // Only the cache region of the table's entity is invalidated
+    private int delete(LineageTable lineage, Long importId) {
+        return entityManager.createNativeQuery("DELETE FROM " + lineage.table() + " WHERE import_id = :importId")
+                .setParameter("importId", importId)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(lineage.entityType())
+                .executeUpdate();
+    }
+}
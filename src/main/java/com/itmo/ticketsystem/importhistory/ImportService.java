@@ -1,23 +1,51 @@
 package com.itmo.ticketsystem.importhistory;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.exceptions.BadRequestException;
+import com.itmo.ticketsystem.common.exceptions.ConflictException;
 import com.itmo.ticketsystem.common.exceptions.NotFoundException;
+import com.itmo.ticketsystem.common.exceptions.TooManyRequestsException;
 import com.itmo.ticketsystem.common.security.AuthorizationService;
+import com.itmo.ticketsystem.common.storage.MinIOAsyncService;
 import com.itmo.ticketsystem.common.storage.MinIOService;
+import com.itmo.ticketsystem.importhistory.dto.ImportDryRunDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportHistoryDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportPartitionDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportProgressDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportResultDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportRevertDto;
+import com.itmo.ticketsystem.importhistory.dto.ImportUploadDto;
+import com.itmo.ticketsystem.importhistory.job.ImportAdmissionController;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressService;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartitionRepository;
+import com.itmo.ticketsystem.importhistory.reader.ImportCompression;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
+import com.itmo.ticketsystem.importhistory.reader.JsonImportRecordReader;
 import com.itmo.ticketsystem.importhistory.transaction.ImportTransactionCoordinator;
+import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
+import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant;
+import com.itmo.ticketsystem.importhistory.transaction.participants.MinIOParticipant;
 import com.itmo.ticketsystem.user.User;
 
+import io.minio.StatObjectResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -31,7 +59,15 @@ public class ImportService {
     private final AuthorizationService authorizationService;
     private final ObjectMapper objectMapper;
     private final MinIOService minIOService;
+    private final MinIOAsyncService minIOAsyncService;
     private final ImportTransactionCoordinator ClassicTwoPhaseCommitOrchestrator;
+    private final ImportProgressService importProgressService;
+    private final ImportExecutor importExecutor;
+    private final ImportAdmissionController admissionController;
+    private final ImportConfig importConfig;
+    private final ImportPartitionRepository importPartitionRepository;
+    private final ImportRevertService importRevertService;
+    private final MinIOParticipant minIOParticipant;
 
     public List<ImportHistoryDto> getImportHistory(EntityType entityType, User currentUser) {
         authorizationService.requireAuthenticated(currentUser);
@@ -49,15 +85,27 @@ public class ImportService {
                 .collect(Collectors.toList());
     }
 
-    public ImportResultDto importEntities(MultipartFile file, User currentUser) {
+    public ImportResultDto importEntities(MultipartFile file, EntityType entityType, ImportMode mode,
+            Integer chunkSize, Integer partitions, User currentUser) {
         authorizationService.requireAuthenticated(currentUser);
 
+        validateChunkSize(chunkSize);
+        validatePartitions(partitions, chunkSize);
+
+        // Rejected with 429 before any work is done
+        ImportAdmissionController.Permit permit = admit(currentUser, partitions,
+                ImportFormat.detect(file.getContentType(), file.getOriginalFilename()));
         try {
             log.info("Starting import with 2PC for user: {}", currentUser.getUsername());
 
-            ImportRequestDto importRequest = objectMapper.readValue(file.getBytes(), ImportRequestDto.class);
+            ImportRequestDto importRequest = buildRequest(file, entityType, mode, chunkSize, partitions);
             log.info("Import entity type: {}", importRequest.getEntityType());
 
+            Optional<ImportResultDto> previous = findPreviousImport(file, importRequest, currentUser);
+            if (previous.isPresent()) {
+                return previous.get();
+            }
+
             // Execute import with 2PC orchestrator
             return ClassicTwoPhaseCommitOrchestrator.run(
                     file,
@@ -72,6 +120,377 @@ public class ImportService {
                     .createdCount(0)
                     .errorMessage("Failed to import file: " + e.getMessage())
                     .build();
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Async import: stages the file and queues the job, the import itself is run
+     * by {@link com.itmo.ticketsystem.importhistory.job.ImportJobWorker}.
+     */
+    public ImportResultDto submitImport(MultipartFile file, EntityType entityType, ImportMode mode,
+            Integer chunkSize, Integer partitions, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+        validateChunkSize(chunkSize);
+        validatePartitions(partitions, chunkSize);
+
+        checkQueueQuota(currentUser);
+
+        try {
+            log.info("Submitting async import for user: {}", currentUser.getUsername());
+
+            ImportRequestDto importRequest = buildRequest(file, entityType, mode, chunkSize, partitions);
+
+            Optional<ImportResultDto> previous = findPreviousImport(file, importRequest, currentUser);
+            if (previous.isPresent()) {
+                return previous.get();
+            }
+
+            return ClassicTwoPhaseCommitOrchestrator.enqueue(
+                    file,
+                    importRequest,
+                    currentUser,
+                    file.getOriginalFilename());
+
+        } catch (TooManyRequestsException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to submit import for user {}: {}", currentUser.getUsername(), e.getMessage(), e);
+            return ImportResultDto.builder()
+                    .status(com.itmo.ticketsystem.common.ImportStatus.FAILED)
+                    .createdCount(0)
+                    .errorMessage("Failed to import file: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Direct upload, step 1: returns a presigned URL the client PUTs the file to,
+     * so the bytes go straight to object storage instead of through this node.
+     * Nothing is recorded until the import is started with
+     * {@link #startUploadedImport}.
+     */
+    public ImportUploadDto createUpload(String fileName, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        String name = uploadFileName(fileName);
+        UUID uploadId = UUID.randomUUID();
+        Duration expiry = importConfig.getDirectUpload().getUrlExpiry();
+        try {
+            String uploadUrl = minIOParticipant.presignUpload(uploadPendingPath(uploadId, name, currentUser), expiry);
+            log.info("Direct upload {} of '{}' created for user: {}", uploadId, name, currentUser.getUsername());
+            return ImportUploadDto.builder()
+                    .uploadId(uploadId)
+                    .fileName(name)
+                    .uploadUrl(uploadUrl)
+                    .expiresAt(LocalDateTime.now().plus(expiry))
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create upload URL: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Direct upload, step 2: starts the import of an uploaded file. The records
+     * are streamed back from MinIO during the DB commit phase; the upload id
+     * becomes the transaction id.
+     * <p>
+     * The upload is not hashed (that would mean reading it twice), so the
+     * idempotency check of multipart uploads does not apply.
+     */
+    public ImportResultDto startUploadedImport(UUID uploadId, String fileName, EntityType entityType,
+            ImportMode mode, Integer chunkSize, Integer partitions, boolean async, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+        validateChunkSize(chunkSize);
+        validatePartitions(partitions, chunkSize);
+
+        String name = uploadFileName(fileName);
+        // The path contains the user id: an upload id of another user resolves to nothing
+        String pendingPath = uploadPendingPath(uploadId, name, currentUser);
+        StatObjectResponse upload;
+        try {
+            upload = minIOService.statFile(pendingPath)
+                    .orElseThrow(() -> new NotFoundException("Upload not found: " + uploadId));
+        } catch (NotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to check upload: " + e.getMessage(), e);
+        }
+        if (importHistoryRepository.findByTransactionId(uploadId).isPresent()) {
+            throw new ConflictException("Import already started", "Upload " + uploadId + " was already imported");
+        }
+        if (async) {
+            checkQueueQuota(currentUser);
+        }
+
+        ImportAdmissionController.Permit permit = async
+                ? null
+                : admit(currentUser, partitions, ImportFormat.detect(upload.contentType(), name));
+        try {
+            ImportRequestDto importRequest = buildRequest(minIOParticipant.pendingSource(pendingPath),
+                    upload.contentType(), name, upload.size(), entityType, mode, chunkSize, partitions);
+            log.info("Starting {} import of direct upload {} for user: {}",
+                    importRequest.getEntityType(), uploadId, currentUser.getUsername());
+
+            return async
+                    ? ClassicTwoPhaseCommitOrchestrator.enqueueStaged(uploadId, importRequest, currentUser,
+                            pendingPath, name)
+                    : ClassicTwoPhaseCommitOrchestrator.runStaged(uploadId, importRequest, currentUser, pendingPath);
+
+        } catch (TooManyRequestsException e) {
+            // The upload is kept, the import can be started again later
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to import upload {} for user {}: {}", uploadId, currentUser.getUsername(),
+                    e.getMessage(), e);
+            return ImportResultDto.builder()
+                    .status(com.itmo.ticketsystem.common.ImportStatus.FAILED)
+                    .createdCount(0)
+                    .errorMessage("Failed to import file: " + e.getMessage())
+                    .build();
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the import pipeline without writing anything: no ImportHistory, no
+     * MinIO upload, no DB locks.
+     */
+    public ImportDryRunDto dryRunImport(MultipartFile file, EntityType entityType, ImportMode mode,
+            User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        ImportRequestDto importRequest;
+        try {
+            importRequest = buildRequest(file, entityType, mode, null, null);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BadRequestException("Dry run failed", e.getMessage());
+        }
+
+        if (importRequest.isArchive()) {
+            throw new BadRequestException("Dry run failed", "Dry run is not supported for archive imports");
+        }
+
+        log.info("Dry run of {} import for user: {}", importRequest.getEntityType(), currentUser.getUsername());
+        try {
+            return importExecutor.dryRun(importRequest);
+        } catch (Exception e) {
+            throw new BadRequestException("Dry run failed", e.getMessage());
+        }
+    }
+
+    public ImportProgressDto getImportProgress(Long id, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        ImportHistory history = importHistoryRepository
+                .findById(id)
+                .orElseThrow(() -> new NotFoundException("Import history not found with ID: " + id));
+
+        // Check access
+        if (!authorizationService.isAdmin(currentUser) && !history.getUser().getId().equals(currentUser.getId())) {
+            throw new NotFoundException("Import history not found with ID: " + id);
+        }
+
+        return importProgressService.toDto(history, importProgressService.findProgress(id).orElse(null));
+    }
+
+    public List<ImportPartitionDto> getImportPartitions(Long id, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        ImportHistory history = importHistoryRepository
+                .findById(id)
+                .orElseThrow(() -> new NotFoundException("Import history not found with ID: " + id));
+
+        // Check access
+        if (!authorizationService.isAdmin(currentUser) && !history.getUser().getId().equals(currentUser.getId())) {
+            throw new NotFoundException("Import history not found with ID: " + id);
+        }
+
+        return importPartitionRepository.findByImportIdOrderByPartitionIndex(id).stream()
+                .map(importHistoryMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    public ImportResultDto resumeImport(Long id, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        ImportHistory history = importHistoryRepository
+                .findById(id)
+                .orElseThrow(() -> new NotFoundException("Import history not found with ID: " + id));
+
+        if (!history.getUser().getId().equals(currentUser.getId())) {
+            throw new NotFoundException("Import history not found with ID: " + id);
+        }
+        if (history.getTransactionStatus() != TransactionState.SUSPENDED) {
+            throw new ConflictException("Import cannot be resumed",
+                    "Import is in state " + history.getTransactionStatus() + ", only SUSPENDED imports can be resumed");
+        }
+
+        log.info("Resuming import {} from record {} for user: {}",
+                id, history.getCommittedOffset(), currentUser.getUsername());
+        try (ImportAdmissionController.Permit permit = admit(currentUser, history.getPartitions(),
+                history.getFormat())) {
+            return ClassicTwoPhaseCommitOrchestrator.resume(history, currentUser);
+        }
+    }
+
+    /**
+     * Deletes the rows created by an import, see {@link ImportRevertService}.
+     */
+    public ImportRevertDto revertImport(Long id, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        ImportHistory history = importHistoryRepository
+                .findById(id)
+                .orElseThrow(() -> new NotFoundException("Import history not found with ID: " + id));
+
+        // Check access
+        if (!authorizationService.isAdmin(currentUser) && !history.getUser().getId().equals(currentUser.getId())) {
+            throw new NotFoundException("Import history not found with ID: " + id);
+        }
+
+        log.info("Reverting import {} for user: {}", id, currentUser.getUsername());
+        return importRevertService.revert(id);
+    }
+
+    private ImportAdmissionController.Permit admit(User currentUser, Integer partitions, ImportFormat format) {
+        return admissionController.tryAdmit(currentUser.getId(),
+                admissionController.weight(partitions, format != null && format.isArchive()))
+                .orElseThrow(() -> new TooManyRequestsException("Import rejected",
+                        "Too many imports are running, retry later or submit the import with async=true"));
+    }
+
+    // Early rejection before the file is staged, enforced atomically when the job is queued
+    private void checkQueueQuota(User currentUser) {
+        long queued = importHistoryRepository.countByUserIdAndTransactionStatusIn(
+                currentUser.getId(), DatabaseParticipant.WAITING);
+        if (queued >= importConfig.getAdmission().getMaxQueuedPerUser()) {
+            throw new TooManyRequestsException("Import rejected",
+                    "You already have " + queued + " imports waiting in the queue");
+        }
+    }
+
+    // Only the last path segment is kept, the name becomes part of an object path
+    private String uploadFileName(String fileName) {
+        String name = fileName != null ? fileName.substring(fileName.replace('\\', '/').lastIndexOf('/') + 1) : "";
+        if (name.isBlank()) {
+            throw new BadRequestException("Upload failed", "File name is required");
+        }
+        return name;
+    }
+
+    private String uploadPendingPath(UUID uploadId, String fileName, User currentUser) {
+        return minIOParticipant.buildUploadPendingPath(uploadId,
+                minIOParticipant.buildUploadFinalPath(uploadId, currentUser, fileName));
+    }
+
+    private void validateChunkSize(Integer chunkSize) {
+        if (chunkSize != null && chunkSize <= 0) {
+            throw new BadRequestException("Import failed", "Chunk size must be positive");
+        }
+    }
+
+    private void validatePartitions(Integer partitions, Integer chunkSize) {
+        if (partitions == null) {
+            return;
+        }
+        int maxPartitions = importConfig.getPartitioned().getMaxPartitions();
+        if (partitions <= 0 || partitions > maxPartitions) {
+            throw new BadRequestException("Import failed", "Partitions must be between 1 and " + maxPartitions);
+        }
+        if (chunkSize != null) {
+            throw new BadRequestException("Import failed", "Partitions and chunk size cannot be combined");
+        }
+    }
+
+    private ImportRequestDto buildRequest(MultipartFile file, EntityType entityType, ImportMode mode,
+            Integer chunkSize, Integer partitions) throws Exception {
+        return buildRequest(file, file.getContentType(), file.getOriginalFilename(), file.getSize(),
+                entityType, mode, chunkSize, partitions);
+    }
+
+    private ImportRequestDto buildRequest(InputStreamSource source, String contentType, String fileName, long size,
+            EntityType entityType, ImportMode mode, Integer chunkSize, Integer partitions) throws Exception {
+        ImportFormat format = ImportFormat.detect(contentType, fileName);
+        if (format.isArchive()) {
+            // Entity types are taken from the files of the archive
+            if (chunkSize != null) {
+                throw new BadRequestException("Import failed", "Chunk size is not supported for archive imports");
+            }
+            if (partitions != null) {
+                throw new BadRequestException("Import failed", "Partitions are not supported for archive imports");
+            }
+            if (mode == ImportMode.UPSERT) {
+                throw new BadRequestException("Import failed", "Upsert is not supported for archive imports");
+            }
+            entityType = EntityType.ARCHIVE;
+        } else if (format.hasEntityTypeHeader()) {
+            // Only the header is read here, records are streamed during the DB commit phase
+            entityType = readEntityType(source);
+        } else if (entityType == null) {
+            throw new BadRequestException("Import failed", "Entity type is required for " + format + " imports");
+        }
+
+        if (mode == ImportMode.UPSERT && !importExecutor.getImporter(entityType).supportsUpsert()) {
+            throw new BadRequestException("Import failed", "Upsert is not supported for " + entityType
+                    + " imports, only for entities with a natural key (VENUE, LOCATION, PERSON)");
+        }
+
+        ImportRequestDto importRequest = ImportRequestDto.streaming(entityType, format, source);
+        importRequest.setMode(mode != null ? mode : ImportMode.INSERT);
+        importRequest.setChunkSize(chunkSize);
+        importRequest.setPartitions(partitions);
+        importRequest.setSizeBytes(size);
+        return importRequest;
+    }
+
+    /**
+     * Idempotency for retried uploads: hashes the upload and looks for an import
+     * of the same bytes, entity type and mode by the same user within
+     * {@code import.idempotency-window}.
+     * Aborted and reverted imports do not count, they may be retried.
+     */
+    private Optional<ImportResultDto> findPreviousImport(MultipartFile file, ImportRequestDto importRequest,
+            User currentUser) throws Exception {
+        Duration window = importConfig.getIdempotencyWindow();
+        if (window == null || window.isZero()) {
+            return Optional.empty();
+        }
+
+        try (InputStream inputStream = file.getInputStream()) {
+            importRequest.setContentHash(DigestUtils.sha256Hex(inputStream));
+        }
+
+        return importHistoryRepository
+                .findFirstByUserIdAndContentHashAndEntityTypeAndModeAndCreatedAtAfterAndTransactionStatusNotInOrderByCreatedAtDesc(
+                        currentUser.getId(),
+                        importRequest.getContentHash(),
+                        importRequest.getEntityType(),
+                        importRequest.getMode(),
+                        LocalDateTime.now().minus(window),
+                        List.of(TransactionState.ABORTED, TransactionState.REVERTED))
+                .map(history -> {
+                    log.info("Upload of user {} repeats import {} (sha256={}), returning its result",
+                            currentUser.getUsername(), history.getId(), importRequest.getContentHash());
+                    return ImportResultDto.builder()
+                            .importId(history.getId())
+                            .status(history.getStatus())
+                            .createdCount(history.getCreatedCount())
+                            .errorMessage(history.getErrorMessage())
+                            .build();
+                });
+    }
+
+    private EntityType readEntityType(InputStreamSource source) throws Exception {
+        try (JsonImportRecordReader reader = new JsonImportRecordReader(objectMapper,
+                ImportCompression.decompress(source.getInputStream()))) {
+            return reader.readEntityType();
         }
     }
 
@@ -90,7 +509,11 @@ public class ImportService {
         return importHistoryMapper.toDto(history);
     }
 
-    public InputStream downloadImportFile(String filePath) throws Exception {
-        return minIOService.downloadFile(filePath);
+    /**
+     * Opens a stored import file without holding the calling thread while
+     * MinIO responds.
+     */
+    public CompletableFuture<InputStream> downloadImportFile(String filePath) {
+        return minIOAsyncService.downloadFile(filePath);
     }
 }
@@ -0,0 +1,254 @@
+package com.itmo.ticketsystem.importhistory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
+import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressTracker;
+import com.itmo.ticketsystem.importhistory.metrics.ImportPhase;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartition;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartitionRepository;
+import com.itmo.ticketsystem.importhistory.reader.ImportRecordReader;
+import com.itmo.ticketsystem.user.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Partitioned import: the file is read once, batch k goes to partition
+ * {@code k % partitionCount}. Every partition runs on its own worker thread in
+ * its own transaction (and connection) and commits or fails on its own.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PartitionedImportExecutor {
+
+    private final ImportExecutor importExecutor;
+    private final ImportPartitionRepository importPartitionRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final ImportConfig importConfig;
+
+    private record Batch(int size, Callable<Integer> work) {
+    }
+
+    // Queue marker: no more batches for the partition
+    private static final Batch END = new Batch(0, () -> 0);
+
+    /**
+     * Runs all partitions except {@code skipped} ones, which were committed by an
+     * earlier run.
+     *
+     * @return result of every partition that was run
+     */
+    public List<ImportPartition> execute(Long importId, ImportRequestDto request, User currentUser,
+            int partitionCount, int batchSize, Set<Integer> skipped, ImportProgressTracker progress) {
+        Map<Integer, Worker> workers = new LinkedHashMap<>();
+        for (int i = 0; i < partitionCount; i++) {
+            if (!skipped.contains(i)) {
+                workers.put(i, new Worker(importId, i, partitionCount, batchSize, request, progress));
+            }
+        }
+        log.info("[2PC DB] COMMIT: partitioned import {} running partitions {} of {}",
+                importId, workers.keySet(), partitionCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers.size()));
+        try {
+            List<Future<ImportPartition>> results = new ArrayList<>();
+            for (Worker worker : workers.values()) {
+                results.add(executor.submit(worker));
+            }
+
+            RuntimeException readFailure = null;
+            Importer<?> importer = importExecutor.getImporter(request.getEntityType());
+            Importer.BatchRunner dispatch = (offset, size, batch) -> {
+                Worker worker = workers.get((offset / batchSize) % partitionCount);
+                if (worker != null && !worker.failed) {
+                    worker.queue.put(new Batch(size, batch));
+                }
+                return 0;
+            };
+            try (ImportRecordReader reader = importExecutor.openReader(request, progress)) {
+                importer.doImport(reader, currentUser, batchSize, 0, ImportExecutor.target(request), dispatch);
+            } catch (Exception e) {
+                // Nothing of a partially read file is committed
+                readFailure = new RuntimeException("Import failed: " + e.getMessage(), e);
+                workers.values().forEach(worker -> worker.aborted = true);
+            } finally {
+                request.getMetrics().setBytesRead(progress.getBytesRead());
+                for (Worker worker : workers.values()) {
+                    putEnd(worker);
+                }
+            }
+
+            List<ImportPartition> partitions = new ArrayList<>();
+            for (Future<ImportPartition> result : results) {
+                partitions.add(result.get());
+            }
+            if (readFailure != null) {
+                throw readFailure;
+            }
+            return partitions;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Partitioned import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partition worker failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void putEnd(Worker worker) {
+        try {
+            worker.queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Partitioned import interrupted", e);
+        }
+    }
+
+    private class Worker implements Callable<ImportPartition> {
+        private final Long importId;
+        private final int index;
+        private final int partitionCount;
+        private final int batchSize;
+        private final ImportRequestDto request;
+        private final ImportProgressTracker progress;
+        private final BlockingQueue<Batch> queue;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+
+        private volatile boolean failed;
+        private volatile boolean aborted;
+        private boolean ended;
+        private int recordCount;
+
+        Worker(Long importId, int index, int partitionCount, int batchSize, ImportRequestDto request,
+                ImportProgressTracker progress) {
+            this.importId = importId;
+            this.index = index;
+            this.partitionCount = partitionCount;
+            this.batchSize = batchSize;
+            this.request = request;
+            this.progress = progress;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, importConfig.getPartitioned().getQueueBatches()));
+        }
+
+        @Override
+        public ImportPartition call() {
+            TransactionTemplate tt = new TransactionTemplate(transactionManager);
+            tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+            // Change events of the partition are sent once it has committed
+            try (ChangeEventPublisher.BulkScope changes = changeEventPublisher.beginBulk()) {
+                ImportPartition committed = tt.execute(txStatus -> {
+                    int created = 0;
+                    Batch batch;
+                    while ((batch = take()) != END) {
+                        created += runBatch(batch);
+                        recordCount += batch.size();
+                    }
+                    if (aborted) {
+                        txStatus.setRollbackOnly();
+                        return null;
+                    }
+                    // Recorded in the partition transaction: committed together with the records
+                    return importPartitionRepository.save(result(ImportStatus.SUCCESS, created, null));
+                });
+                if (committed == null) {
+                    return saveFailure("Import aborted");
+                }
+                changes.publish();
+                log.debug("[2PC DB] COMMIT: partition {} of import {} committed {} record(s)",
+                        index, importId, committed.getCreatedCount());
+                return committed;
+            } catch (RuntimeException e) {
+                failed = true;
+                drain();
+                log.error("[2PC DB] COMMIT: partition {} of import {} failed: {}", index, importId, e.getMessage());
+                return saveFailure(e.getMessage());
+            }
+        }
+
+        private int runBatch(Batch batch) {
+            try {
+                int count = request.getMetrics().time(ImportPhase.DB_WRITE, batch.work());
+                request.getMetrics().onBatch(batch.size());
+                progress.onBatch(batch.size());
+                return count;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        private Batch take() {
+            try {
+                Batch batch = queue.take();
+                ended = batch == END;
+                return batch;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Partition worker interrupted", e);
+            }
+        }
+
+        // Keeps taking batches after a failure so the reading thread never blocks on this queue
+        private void drain() {
+            try {
+                while (!ended && queue.take() != END) {
+                    // discarded, the partition is rolled back
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private ImportPartition saveFailure(String errorMessage) {
+            TransactionTemplate tt = new TransactionTemplate(transactionManager);
+            tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            return tt.execute(txStatus -> importPartitionRepository.save(
+                    result(ImportStatus.FAILED, 0, errorMessage)));
+        }
+
+        // Reuses the row of an earlier failed run of the same partition
+        private ImportPartition result(ImportStatus status, int created, String errorMessage) {
+            ImportPartition partition = importPartitionRepository
+                    .findByImportIdAndPartitionIndex(importId, index)
+                    .orElseGet(ImportPartition::new);
+            partition.setImportId(importId);
+            partition.setPartitionIndex(index);
+            partition.setPartitionCount(partitionCount);
+            partition.setBatchSize(batchSize);
+            partition.setStatus(status);
+            partition.setRecordCount(recordCount);
+            partition.setCreatedCount(created);
+            partition.setErrorMessage(errorMessage);
+            partition.setStartedAt(startedAt);
+            partition.setFinishedAt(LocalDateTime.now());
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import java.util.List;
+
+import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportDryRunDto {
+    private EntityType entityType;
+    private ImportFormat format;
+    private Integer recordCount;
+    private Integer rejectedCount;
+    private List<RejectedRecordDto> rejected; // Capped at import.dry-run.max-rejected
+    private Boolean rejectedTruncated;
+
+    // Phase timings
+    private Long parseMs;
+    private Long validateMs;
+    private Long uniquenessMs; // Uniqueness and reference lookups
+    private Long estimatedWriteMs; // Derived from the row count, nothing is written
+    private Long totalMs;
+}
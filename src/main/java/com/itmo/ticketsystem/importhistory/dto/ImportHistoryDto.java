@@ -1,7 +1,9 @@
 package com.itmo.ticketsystem.importhistory.dto;
 
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
 import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -21,8 +23,22 @@ public class ImportHistoryDto {
     private String username;
     private Long userId;
     private Integer createdCount;
+    private TransactionState transactionStatus;
+    private Integer committedOffset;
+    private Integer partitions;
+    private ImportMode mode;
     private String errorMessage;
     private String filePath; // Путь к файлу в MinIO
     private String fileName; // Оригинальное имя файла
     private LocalDateTime createdAt;
+
+    // Run metrics
+    private Long parseMs;
+    private Long validateMs;
+    private Long dbWriteMs;
+    private Long minioPrepareMs;
+    private Long minioCommitMs;
+    private Long bytesRead;
+    private Double recordsPerSecond;
+    private Long peakHeapDeltaBytes;
 }
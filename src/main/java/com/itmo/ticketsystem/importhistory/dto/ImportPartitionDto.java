@@ -0,0 +1,24 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import com.itmo.ticketsystem.common.ImportStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportPartitionDto {
+    private Integer partitionIndex;
+    private Integer partitionCount;
+    private ImportStatus status;
+    private Integer recordCount;
+    private Integer createdCount;
+    private String errorMessage;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,25 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportProgressDto {
+    private Long importId;
+    private ImportStatus status;
+    private TransactionState transactionStatus;
+    private Long processedCount;
+    private Long bytesRead;
+    private Long totalBytes;
+    private Double recordsPerSecond;
+    private Long etaSeconds; // Estimated from bytes read, null until known
+    private Integer createdCount;
+    private String errorMessage;
+}
@@ -1,11 +1,15 @@
 package com.itmo.ticketsystem.importhistory.dto;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.ImportMode;
+import com.itmo.ticketsystem.importhistory.metrics.ImportRunMetrics;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.springframework.core.io.InputStreamSource;
 
 @Data
 @NoArgsConstructor
@@ -15,6 +19,72 @@ public class ImportRequestDto {
     @NotNull(message = "Entity type cannot be null")
     private EntityType entityType;
 
-    @NotNull(message = "Data cannot be null")
-    private JsonNode data;
+    // Raw upload, re-opened and parsed lazily during the DB commit phase
+    @JsonIgnore
+    private InputStreamSource source;
+
+    // Format of the raw upload
+    @JsonIgnore
+    private ImportFormat format = ImportFormat.JSON;
+
+    // SHA-256 of the raw upload, used to detect repeated uploads
+    @JsonIgnore
+    private String contentHash;
+
+    // Size of the raw upload in bytes, used for progress estimation
+    @JsonIgnore
+    private Long sizeBytes;
+
+    // Performance counters of this run
+    @JsonIgnore
+    private ImportRunMetrics metrics = new ImportRunMetrics();
+
+    // Import history the written rows are tagged with, set once the history exists
+    @JsonIgnore
+    private Long importId;
+
+    // INSERT rejects stored natural keys, UPSERT merges records into the entities they name
+    @JsonIgnore
+    private ImportMode mode = ImportMode.INSERT;
+
+    // Records already passed the validation stage, e.g. on the pass that staged the upload
+    @JsonIgnore
+    private boolean validated;
+
+    // Opt-in chunked mode: commit every chunkSize records instead of one transaction
+    @JsonIgnore
+    private Integer chunkSize;
+
+    // Opt-in partitioned mode: records are spread over this many transactions run in parallel
+    @JsonIgnore
+    private Integer partitions;
+
+    @JsonIgnore
+    public boolean isChunked() {
+        return chunkSize != null;
+    }
+
+    @JsonIgnore
+    public boolean isPartitioned() {
+        return partitions != null;
+    }
+
+    @JsonIgnore
+    public boolean isArchive() {
+        return format != null && format.isArchive();
+    }
+
+    // Chunked, partitioned and archive imports commit in parts: a failure suspends instead of aborting
+    @JsonIgnore
+    public boolean isIncremental() {
+        return isChunked() || isPartitioned() || isArchive();
+    }
+
+    public static ImportRequestDto streaming(EntityType entityType, ImportFormat format, InputStreamSource source) {
+        ImportRequestDto request = new ImportRequestDto();
+        request.setEntityType(entityType);
+        request.setFormat(format);
+        request.setSource(source);
+        return request;
+    }
 }
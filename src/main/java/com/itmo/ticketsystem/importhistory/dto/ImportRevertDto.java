@@ -0,0 +1,19 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportRevertDto {
+    private Long importId;
+    private Integer deletedCount;
+    private Map<String, Integer> deleted; // Deleted rows per table
+    private Long durationMs;
+}
@@ -0,0 +1,20 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportUploadDto {
+    private UUID uploadId;
+    private String fileName;
+    private String uploadUrl; // Presigned URL, the file is sent there with PUT
+    private LocalDateTime expiresAt;
+}
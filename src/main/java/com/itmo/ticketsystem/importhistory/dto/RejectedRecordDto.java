@@ -0,0 +1,13 @@
+package com.itmo.ticketsystem.importhistory.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejectedRecordDto {
+    private Integer index;
+    private String message;
+}
@@ -0,0 +1,128 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.itmo.ticketsystem.common.config.ImportConfig;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limits the connections running imports hold on this node, so imports together
+ * only take {@code import.admission.pool-share} of the pool. An import is
+ * weighted by the connections it holds at once: one for a single-transaction or
+ * chunked import, one per partition or archive lane plus the reading thread's
+ * for a partitioned or archive import.
+ * <p>
+ * Synchronous imports are rejected when their weight does not fit, queued imports
+ * wait in the job queue, which is drained fairly per user by
+ * {@link ImportJobWorker}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportAdmissionController {
+
+    private final ImportConfig importConfig;
+
+    @Value("${spring.datasource.dbcp2.max-total:20}")
+    private int poolMaxTotal;
+
+    private int capacity;
+    private Semaphore connections;
+    private Semaphore imports;
+    private final Map<Long, AtomicInteger> runningPerUser = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        ImportConfig.Admission admission = importConfig.getAdmission();
+        capacity = Math.max(1, (int) Math.floor(poolMaxTotal * admission.getPoolShare()));
+        connections = new Semaphore(capacity, true);
+        if (admission.getMaxConcurrent() > 0) {
+            imports = new Semaphore(admission.getMaxConcurrent(), true);
+        }
+        log.info("Import admission: {} connections for imports (pool max-total {}, share {}), max {} imports",
+                capacity, poolMaxTotal, admission.getPoolShare(),
+                admission.getMaxConcurrent() > 0 ? admission.getMaxConcurrent() : "unbounded");
+    }
+
+    /**
+     * Connections an import holds at once.
+     *
+     * @param partitions partitions of a partitioned import, null otherwise
+     * @param archive    true for a zip import, whose levels run in up to {@code import.archive.lanes} lanes
+     */
+    public int weight(Integer partitions, boolean archive) {
+        if (archive) {
+            return Math.max(1, importConfig.getArchive().getLanes()) + 1;
+        }
+        return partitions != null ? partitions + 1 : 1;
+    }
+
+    /**
+     * True if at least a single-connection import would be admitted, a cheap
+     * check before a job is claimed.
+     */
+    public boolean hasCapacity() {
+        return connections.availablePermits() > 0 && (imports == null || imports.availablePermits() > 0);
+    }
+
+    /**
+     * Admits an import of {@code userId} holding {@code weight} connections if
+     * they are free and the user is below {@code max-running-per-user}. An import
+     * heavier than the whole budget takes all of it and runs alone. The returned
+     * permit must be closed when the import finishes.
+     */
+    public Optional<Permit> tryAdmit(Long userId, int weight) {
+        int connectionCount = Math.min(Math.max(1, weight), capacity);
+        AtomicInteger running = runningPerUser.computeIfAbsent(userId, id -> new AtomicInteger());
+        if (running.incrementAndGet() > importConfig.getAdmission().getMaxRunningPerUser()) {
+            running.decrementAndGet();
+            return Optional.empty();
+        }
+        if (imports != null && !imports.tryAcquire()) {
+            running.decrementAndGet();
+            return Optional.empty();
+        }
+        if (!connections.tryAcquire(connectionCount)) {
+            if (imports != null) {
+                imports.release();
+            }
+            running.decrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(new Permit(userId, connectionCount));
+    }
+
+    public class Permit implements AutoCloseable {
+        private final Long userId;
+        private final int connectionCount;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Long userId, int connectionCount) {
+            this.userId = userId;
+            this.connectionCount = connectionCount;
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            connections.release(connectionCount);
+            if (imports != null) {
+                imports.release();
+            }
+            runningPerUser.get(userId).decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.importhistory.transaction.ImportTransactionCoordinator;
+import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant;
+import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant.ClaimedJob;
+import com.itmo.ticketsystem.user.User;
+import com.itmo.ticketsystem.user.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs queued imports. Jobs are claimed with {@code FOR UPDATE SKIP LOCKED}, so
+ * several nodes can poll the same queue without taking the same job twice.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportJobWorker {
+
+    private final ImportConfig importConfig;
+    private final DatabaseParticipant databaseParticipant;
+    private final ImportTransactionCoordinator coordinator;
+    private final UserRepository userRepository;
+    private final ImportAdmissionController admissionController;
+
+    private final AtomicInteger activeJobs = new AtomicInteger();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, importConfig.getJobs().getWorkers()));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${import.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        ImportConfig.Jobs jobs = importConfig.getJobs();
+        if (!jobs.isEnabled()) {
+            return;
+        }
+
+        // Claim only as many jobs as there are free workers and admission slots
+        while (activeJobs.get() < Math.max(1, jobs.getWorkers()) && admissionController.hasCapacity()) {
+            Optional<ClaimedJob> claimed = databaseParticipant.claimNextQueued(
+                    jobs.getNodeId(), importConfig.getAdmission().getMaxRunningPerUser());
+            if (claimed.isEmpty()) {
+                return;
+            }
+
+            // The weight of a job is only known once it is claimed, a job that does not fit goes back
+            ClaimedJob job = claimed.get();
+            Optional<ImportAdmissionController.Permit> permit = admissionController.tryAdmit(job.userId(),
+                    admissionController.weight(job.partitions(), job.archive()));
+            if (permit.isEmpty()) {
+                databaseParticipant.requeue(job.txId());
+                return;
+            }
+
+            activeJobs.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    run(job);
+                } finally {
+                    activeJobs.decrementAndGet();
+                    permit.get().close();
+                }
+            });
+        }
+    }
+
+    private void run(ClaimedJob job) {
+        log.info("Running queued import {} (txId={})", job.importId(), job.txId());
+        try {
+            User user = userRepository.findById(job.userId())
+                    .orElseThrow(() -> new IllegalStateException("User not found: " + job.userId()));
+            coordinator.runQueued(job, user);
+        } catch (Exception e) {
+            log.error("Queued import {} failed: {}", job.importId(), e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Live progress of a running import. Kept apart from import_history (and
+ * without a FK to it) so it can be written in its own short transactions while
+ * the import transaction holds the history row.
+ */
+@Entity
+@Table(name = "import_progress")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportProgress {
+
+    @Id
+    @Column(name = "import_id")
+    private Long importId;
+
+    @Column(name = "processed_count")
+    private Long processedCount;
+
+    @Column(name = "bytes_read")
+    private Long bytesRead;
+
+    @Column(name = "total_bytes")
+    private Long totalBytes;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,8 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportProgressRepository extends JpaRepository<ImportProgress, Long> {
+}
@@ -0,0 +1,130 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.importhistory.ImportHistory;
+import com.itmo.ticketsystem.importhistory.dto.ImportProgressDto;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Progress of running imports. Saves are handed to a single writer thread: an
+ * import thread never opens a second transaction (and connection) next to its
+ * own for progress, and all imports together use at most one connection for it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportProgressService {
+
+    static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final ImportProgressRepository importProgressRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ImportConfig importConfig;
+
+    private ExecutorService writer;
+
+    @PostConstruct
+    void init() {
+        writer = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public ImportProgressTracker start(Long importId, Long totalBytes) {
+        ImportProgressTracker tracker = new ImportProgressTracker(this, importId, totalBytes);
+        save(tracker);
+        return tracker;
+    }
+
+    public Optional<ImportProgress> findProgress(Long importId) {
+        return importProgressRepository.findById(importId);
+    }
+
+    public ImportProgressDto toDto(ImportHistory history, ImportProgress progress) {
+        ImportProgressDto.ImportProgressDtoBuilder dto = ImportProgressDto.builder();
+        if (history != null) {
+            dto.importId(history.getId())
+                    .status(history.getStatus())
+                    .transactionStatus(history.getTransactionStatus())
+                    .createdCount(history.getCreatedCount())
+                    .errorMessage(history.getErrorMessage());
+        }
+        if (progress == null) {
+            return dto.build();
+        }
+
+        dto.importId(progress.getImportId())
+                .processedCount(progress.getProcessedCount())
+                .bytesRead(progress.getBytesRead())
+                .totalBytes(progress.getTotalBytes());
+
+        double elapsedSeconds = Duration.between(progress.getStartedAt(), progress.getUpdatedAt()).toMillis() / 1000.0;
+        if (elapsedSeconds > 0 && progress.getProcessedCount() != null) {
+            dto.recordsPerSecond(progress.getProcessedCount() / elapsedSeconds);
+        }
+
+        Long bytesRead = progress.getBytesRead();
+        Long totalBytes = progress.getTotalBytes();
+        if (elapsedSeconds > 0 && bytesRead != null && bytesRead > 0 && totalBytes != null && totalBytes > 0) {
+            long remaining = Math.max(0, totalBytes - bytesRead);
+            dto.etaSeconds(Math.round(elapsedSeconds * remaining / bytesRead));
+        }
+        return dto.build();
+    }
+
+    // The counters are read on the calling thread, the snapshot is written by the writer thread
+    void save(ImportProgressTracker tracker) {
+        ImportProgress snapshot = ImportProgress.builder()
+                .importId(tracker.getImportId())
+                .processedCount(tracker.getProcessedCount())
+                .bytesRead(tracker.getBytesRead())
+                .totalBytes(tracker.getTotalBytes())
+                .startedAt(tracker.getStartedAt())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        try {
+            writer.execute(() -> write(snapshot));
+        } catch (RejectedExecutionException e) {
+            log.debug("Progress of import {} not saved, shutting down", tracker.getImportId());
+        }
+    }
+
+    // Own transaction: progress must be visible while the import transaction is still open
+    private void write(ImportProgress snapshot) {
+        try {
+            TransactionTemplate tt = new TransactionTemplate(transactionManager);
+            tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            ImportProgress progress = tt.execute(txStatus -> importProgressRepository.save(snapshot));
+
+            if (importConfig.getJobs().isProgressMessages() && progress != null) {
+                messagingTemplate.convertAndSend("/topic/imports/" + snapshot.getImportId(), toDto(null, progress));
+            }
+        } catch (Exception e) {
+            // Progress is informational, never fail the import because of it
+            log.warn("Failed to save progress of import {}: {}", snapshot.getImportId(), e.getMessage());
+        }
+    }
+}
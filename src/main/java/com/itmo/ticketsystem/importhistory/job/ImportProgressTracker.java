@@ -0,0 +1,67 @@
+package com.itmo.ticketsystem.importhistory.job;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.itmo.ticketsystem.importhistory.reader.CountingInputStream;
+
+import lombok.Getter;
+
+/**
+ * Progress counters of a single import run. May be updated by several threads
+ * at once (partition workers, archive lanes), persisted by
+ * {@link ImportProgressService} at most once per flush interval.
+ */
+public class ImportProgressTracker {
+
+    private final ImportProgressService progressService;
+
+    @Getter
+    private final Long importId;
+    @Getter
+    private final Long totalBytes;
+    @Getter
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private final AtomicLong processedCount = new AtomicLong();
+    private volatile CountingInputStream countingStream;
+    private final AtomicLong lastFlushMillis = new AtomicLong(System.currentTimeMillis());
+
+    ImportProgressTracker(ImportProgressService progressService, Long importId, Long totalBytes) {
+        this.progressService = progressService;
+        this.importId = importId;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Wraps the raw upload stream so bytes read can be used to estimate the ETA.
+     */
+    public InputStream track(InputStream inputStream) {
+        countingStream = new CountingInputStream(inputStream);
+        return countingStream;
+    }
+
+    public void onBatch(int records) {
+        processedCount.addAndGet(records);
+
+        // Only the thread that moves the flush time forward saves
+        long now = System.currentTimeMillis();
+        long last = lastFlushMillis.get();
+        if (now - last >= ImportProgressService.FLUSH_INTERVAL_MS && lastFlushMillis.compareAndSet(last, now)) {
+            progressService.save(this);
+        }
+    }
+
+    public void finish() {
+        progressService.save(this);
+    }
+
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public Long getBytesRead() {
+        return countingStream != null ? countingStream.getCount() : null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.itmo.ticketsystem.importhistory.metrics;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.importhistory.ImportHistoryRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the metrics of a finished import run on its history row and exports
+ * them to Micrometer, tagged by entity type and outcome.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportMetricsService {
+
+    private final ImportHistoryRepository importHistoryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    public void finish(UUID txId, EntityType entityType, ImportRunMetrics metrics, boolean success) {
+        String outcome = success ? "success" : "failure";
+        try {
+            export(entityType, metrics, outcome);
+            save(txId, metrics);
+        } catch (Exception e) {
+            // Metrics must never fail an import
+            log.warn("Failed to record import metrics for txId={}: {}", txId, e.getMessage());
+        }
+    }
+
+    private void export(EntityType entityType, ImportRunMetrics metrics, String outcome) {
+        String type = entityType != null ? entityType.name() : "UNKNOWN";
+        for (ImportPhase phase : ImportPhase.values()) {
+            if (metrics.nanos(phase) > 0) {
+                Timer.builder("import.phase.duration")
+                        .description("Time spent in an import phase")
+                        .tag("entityType", type)
+                        .tag("phase", phase.name().toLowerCase())
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+                        .record(Duration.ofNanos(metrics.nanos(phase)));
+            }
+        }
+
+        summary("import.records", "records", type, outcome).record(metrics.getRecords());
+        summary("import.throughput", "records/s", type, outcome).record(metrics.recordsPerSecond());
+        summary("import.heap.delta", "bytes", type, outcome).record(metrics.getPeakHeapDelta());
+        if (metrics.getBytesRead() != null) {
+            summary("import.bytes.read", "bytes", type, outcome).record(metrics.getBytesRead());
+        }
+    }
+
+    private DistributionSummary summary(String name, String unit, String type, String outcome) {
+        return DistributionSummary.builder(name)
+                .baseUnit(unit)
+                .tag("entityType", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void save(UUID txId, ImportRunMetrics metrics) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tt.executeWithoutResult(txStatus -> importHistoryRepository.findByTransactionId(txId).ifPresent(history -> {
+            history.setParseMs(metrics.millis(ImportPhase.PARSE));
+            history.setValidateMs(metrics.millis(ImportPhase.VALIDATE));
+            history.setDbWriteMs(metrics.millis(ImportPhase.DB_WRITE));
+            // Prepare of a queued import ran in another request and is already stored
+            if (metrics.nanos(ImportPhase.MINIO_PREPARE) > 0) {
+                history.setMinioPrepareMs(metrics.millis(ImportPhase.MINIO_PREPARE));
+            }
+            history.setMinioCommitMs(metrics.millis(ImportPhase.MINIO_COMMIT));
+            history.setBytesRead(metrics.getBytesRead());
+            history.setRecordsPerSecond(metrics.recordsPerSecond());
+            history.setPeakHeapDeltaBytes(metrics.getPeakHeapDelta());
+            importHistoryRepository.save(history);
+        }));
+    }
+}
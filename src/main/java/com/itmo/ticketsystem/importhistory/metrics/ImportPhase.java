@@ -0,0 +1,9 @@
+package com.itmo.ticketsystem.importhistory.metrics;
+
+public enum ImportPhase {
+    PARSE,
+    VALIDATE,
+    DB_WRITE,
+    MINIO_PREPARE,
+    MINIO_COMMIT
+}
@@ -0,0 +1,80 @@
+package com.itmo.ticketsystem.importhistory.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Performance counters of a single import run: time per phase, records, bytes
+ * read and the peak heap growth observed between batches.
+ */
+public class ImportRunMetrics {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final long startedNanos = System.nanoTime();
+    private final long heapBaseline = usedHeap();
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(ImportPhase.values().length);
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong peakHeapDelta = new AtomicLong();
+    private volatile Long bytesRead;
+
+    public void add(ImportPhase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    public <T> T time(ImportPhase phase, Callable<T> action) throws Exception {
+        long started = System.nanoTime();
+        try {
+            return action.call();
+        } finally {
+            add(phase, System.nanoTime() - started);
+        }
+    }
+
+    public long nanos(ImportPhase phase) {
+        return phaseNanos.get(phase.ordinal());
+    }
+
+    public long millis(ImportPhase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos(phase));
+    }
+
+    public void onBatch(int size) {
+        records.addAndGet(size);
+        peakHeapDelta.accumulateAndGet(usedHeap() - heapBaseline, Math::max);
+    }
+
+    public long getRecords() {
+        return records.get();
+    }
+
+    public long getPeakHeapDelta() {
+        return peakHeapDelta.get();
+    }
+
+    public Long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(Long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startedNanos;
+    }
+
+    public double recordsPerSecond() {
+        long elapsed = elapsedNanos();
+        return elapsed > 0 ? records.get() * 1e9 / elapsed : 0;
+    }
+
+    private static long usedHeap() {
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,44 @@
+package com.itmo.ticketsystem.importhistory.metrics;
+
+import java.io.IOException;
+
+import com.itmo.ticketsystem.importhistory.reader.ImportRecordReader;
+
+/**
+ * Adds the time spent reading and binding records to the PARSE phase.
+ */
+public class TimedImportRecordReader implements ImportRecordReader {
+
+    private final ImportRecordReader delegate;
+    private final ImportRunMetrics metrics;
+
+    public TimedImportRecordReader(ImportRecordReader delegate, ImportRunMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> T next(Class<T> type) throws IOException {
+        long started = System.nanoTime();
+        try {
+            return delegate.next(type);
+        } finally {
+            metrics.add(ImportPhase.PARSE, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public boolean skip() throws IOException {
+        long started = System.nanoTime();
+        try {
+            return delegate.skip();
+        } finally {
+            metrics.add(ImportPhase.PARSE, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
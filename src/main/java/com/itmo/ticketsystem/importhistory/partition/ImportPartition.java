@@ -0,0 +1,61 @@
+package com.itmo.ticketsystem.importhistory.partition;
+
+import com.itmo.ticketsystem.common.ImportStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Result of one partition of a partitioned import. A committed partition is
+ * recorded in the transaction of the partition itself, so the row exists if and
+ * only if its records are in the database.
+ */
+@Entity
+@Table(name = "import_partition", uniqueConstraints = @UniqueConstraint(columnNames = { "import_id",
+        "partition_index" }))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportPartition {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "import_id", nullable = false)
+    private Long importId;
+
+    @Column(name = "partition_index", nullable = false)
+    private Integer partitionIndex;
+
+    // Batch k of the file goes to partition k % partitionCount, kept for resume
+    @Column(name = "partition_count", nullable = false)
+    private Integer partitionCount;
+
+    @Column(name = "batch_size", nullable = false)
+    private Integer batchSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ImportStatus status;
+
+    @Column(name = "record_count")
+    private Integer recordCount;
+
+    @Column(name = "created_count")
+    private Integer createdCount;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.itmo.ticketsystem.importhistory.partition;
+
+import com.itmo.ticketsystem.common.ImportStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImportPartitionRepository extends JpaRepository<ImportPartition, Long> {
+
+    List<ImportPartition> findByImportIdOrderByPartitionIndex(Long importId);
+
+    Optional<ImportPartition> findByImportIdAndPartitionIndex(Long importId, Integer partitionIndex);
+
+    boolean existsByImportIdAndStatus(Long importId, ImportStatus status);
+}
@@ -0,0 +1,72 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+/**
+ * Streaming reader for CSV with a header row. Nested DTO fields are addressed
+ * with dotted column names, e.g. {@code person.location.x}. Empty cells are
+ * read as {@code null}.
+ */
+public class CsvImportRecordReader implements ImportRecordReader {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private final ObjectMapper objectMapper;
+    private final MappingIterator<Map<String, String>> rows;
+
+    public CsvImportRecordReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.objectMapper = objectMapper;
+        this.rows = CSV_MAPPER
+                .readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(inputStream);
+    }
+
+    @Override
+    public <T> T next(Class<T> type) throws IOException {
+        if (!rows.hasNextValue()) {
+            return null;
+        }
+        return objectMapper.treeToValue(toTree(rows.nextValue()), type);
+    }
+
+    @Override
+    public boolean skip() throws IOException {
+        if (!rows.hasNextValue()) {
+            return false;
+        }
+        rows.nextValue();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+
+    // Scalar cells are bound as text, Jackson coerces them to the DTO field types
+    private ObjectNode toTree(Map<String, String> row) {
+        ObjectNode root = objectMapper.createObjectNode();
+        for (Map.Entry<String, String> cell : row.entrySet()) {
+            if (cell.getValue() == null || cell.getValue().isEmpty()) {
+                continue;
+            }
+
+            String[] path = cell.getKey().trim().split("\\.");
+            ObjectNode node = root;
+            for (int i = 0; i < path.length - 1; i++) {
+                node = node.has(path[i]) ? (ObjectNode) node.get(path[i]) : node.putObject(path[i]);
+            }
+            node.put(path[path.length - 1], cell.getValue());
+        }
+        return root;
+    }
+}
@@ -0,0 +1,71 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+/**
+ * Compression of an import upload. Detected from the magic bytes of the stream,
+ * so it does not depend on how the client named the file. Compressed uploads
+ * are stored in MinIO as they are and only decompressed while being parsed.
+ */
+public enum ImportCompression {
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    ImportCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Wraps {@code inputStream} with a decompressor if it starts with a gzip or
+     * zstd header, otherwise returns the (buffered) stream unchanged.
+     */
+    public static InputStream decompress(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        return switch (detect(buffered)) {
+            case GZIP -> new GZIPInputStream(buffered, BUFFER_SIZE);
+            case ZSTD -> new BufferedInputStream(new ZstdInputStream(buffered), BUFFER_SIZE);
+            case NONE -> buffered;
+        };
+    }
+
+    /**
+     * Removes a compression extension, e.g. {@code tickets.ndjson.zst} becomes
+     * {@code tickets.ndjson}.
+     */
+    public static String stripExtension(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (ImportCompression compression : values()) {
+            if (compression != NONE && name.endsWith(compression.extension)) {
+                return fileName.substring(0, fileName.length() - compression.extension.length());
+            }
+        }
+        return fileName;
+    }
+
+    private static ImportCompression detect(BufferedInputStream inputStream) throws IOException {
+        inputStream.mark(4);
+        byte[] magic = inputStream.readNBytes(4);
+        inputStream.reset();
+
+        if (magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return GZIP;
+        }
+        // zstd frame magic number 0xFD2FB528, little endian
+        if (magic.length == 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,74 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Supported import file formats. The format is picked from the content type of
+ * the upload, falling back to the file extension (ignoring a compression
+ * extension like {@code .gz}).
+ */
+public enum ImportFormat {
+    // {"entityType": "...", "data": [ ... ]}
+    JSON,
+    // One record per line, entity type passed separately
+    NDJSON,
+    // Header row with (dotted, for nested objects) field names, entity type passed separately
+    CSV,
+    // Zip of entity files in any of the formats above, one entity type per file
+    ZIP;
+
+    public static ImportFormat detect(String contentType, String fileName) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+                return NDJSON;
+            }
+            if (type.startsWith("text/csv")) {
+                return CSV;
+            }
+            if (type.startsWith("application/zip") || type.startsWith("application/x-zip-compressed")) {
+                return ZIP;
+            }
+        }
+        if (fileName != null) {
+            String name = ImportCompression.stripExtension(fileName).toLowerCase(Locale.ROOT);
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+                return NDJSON;
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".zip")) {
+                return ZIP;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * True if the entity type is stored in the file itself.
+     */
+    public boolean hasEntityTypeHeader() {
+        return this == JSON;
+    }
+
+    /**
+     * True for multi-file uploads, which are imported entry by entry.
+     */
+    public boolean isArchive() {
+        return this == ZIP;
+    }
+
+    public ImportRecordReader open(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        return switch (this) {
+            case JSON -> new JsonImportRecordReader(objectMapper, inputStream);
+            case NDJSON -> new NdjsonImportRecordReader(objectMapper, inputStream);
+            case CSV -> new CsvImportRecordReader(objectMapper, inputStream);
+            case ZIP -> throw new IllegalStateException("Archive entries are read by ArchiveImportExecutor");
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-based source of import records. Implementations read the underlying
+ * stream lazily, so only the record currently being returned is held in
+ * memory.
+ */
+public interface ImportRecordReader extends Closeable {
+
+    /**
+     * Reads the next record of the import file.
+     *
+     * @param type DTO class to bind the record to
+     * @return the next record or {@code null} when the file is exhausted
+     */
+    <T> T next(Class<T> type) throws IOException;
+
+    /**
+     * Skips the next record without binding it.
+     *
+     * @return {@code false} if the file was already exhausted
+     */
+    boolean skip() throws IOException;
+}
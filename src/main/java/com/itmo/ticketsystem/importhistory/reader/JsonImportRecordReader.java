@@ -0,0 +1,111 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.EntityType;
+
+/**
+ * Streaming reader for the classic import document
+ * {@code {"entityType": "...", "data": [ ... ]}}.
+ * Records of the {@code data} array are bound one by one, the document is never
+ * materialized as a tree.
+ */
+public class JsonImportRecordReader implements ImportRecordReader {
+
+    private static final String ENTITY_TYPE_FIELD = "entityType";
+    private static final String DATA_FIELD = "data";
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+
+    private boolean dataStarted = false;
+    private boolean dataFinished = false;
+
+    public JsonImportRecordReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.close();
+            throw new IllegalArgumentException("Import file must be a JSON object");
+        }
+    }
+
+    /**
+     * Scans top-level fields until {@code entityType} is found. Other fields
+     * (including {@code data}) are skipped without being buffered, so the cost is
+     * constant in memory regardless of field order.
+     */
+    public EntityType readEntityType() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+
+            if (ENTITY_TYPE_FIELD.equals(field)) {
+                return EntityType.valueOf(parser.getText());
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalArgumentException("Import file has no '" + ENTITY_TYPE_FIELD + "' field");
+    }
+
+    @Override
+    public <T> T next(Class<T> type) throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return objectMapper.readValue(parser, type);
+    }
+
+    @Override
+    public boolean skip() throws IOException {
+        if (!advance()) {
+            return false;
+        }
+        parser.skipChildren();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    // Moves the parser to the first token of the next record
+    private boolean advance() throws IOException {
+        if (!dataStarted) {
+            seekData();
+            dataStarted = true;
+        }
+        if (dataFinished) {
+            return false;
+        }
+
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            dataFinished = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void seekData() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+
+            if (DATA_FIELD.equals(field)) {
+                if (token != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("'" + DATA_FIELD + "' must be an array");
+                }
+                return;
+            }
+            parser.skipChildren();
+        }
+        throw new IllegalArgumentException("Import file has no '" + DATA_FIELD + "' array");
+    }
+}
@@ -0,0 +1,57 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streaming reader for newline-delimited JSON: every line is one record.
+ */
+public class NdjsonImportRecordReader implements ImportRecordReader {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+
+    public NdjsonImportRecordReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+    }
+
+    @Override
+    public <T> T next(Class<T> type) throws IOException {
+        if (!advance()) {
+            return null;
+        }
+        return objectMapper.readValue(parser, type);
+    }
+
+    @Override
+    public boolean skip() throws IOException {
+        if (!advance()) {
+            return false;
+        }
+        parser.skipChildren();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    // Root-level values are whitespace separated, so blank lines are skipped by the parser
+    private boolean advance() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException(
+                    "Every NDJSON line must be a JSON object (line " + parser.currentLocation().getLineNr() + ")");
+        }
+        return true;
+    }
+}
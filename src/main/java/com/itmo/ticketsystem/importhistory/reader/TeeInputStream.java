@@ -0,0 +1,62 @@
+package com.itmo.ticketsystem.importhistory.reader;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies every byte pulled from the wrapped stream to {@code branch}, so one
+ * pass over an upload can feed a parser and a second consumer. Skipped bytes
+ * are read and copied as well. Closing does not close the branch.
+ */
+public class TeeInputStream extends FilterInputStream {
+
+    private final OutputStream branch;
+
+    public TeeInputStream(InputStream in, OutputStream branch) {
+        super(in);
+        this.branch = branch;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            branch.write(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            branch.write(b, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] skipped = new byte[(int) Math.min(n, 8192)];
+        int read = read(skipped, 0, skipped.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Reads the rest of the stream, e.g. after a parser stopped at the end of its
+     * document, so the branch receives the complete input.
+     */
+    public void drain() throws IOException {
+        byte[] rest = new byte[8192];
+        while (read(rest, 0, rest.length) != -1) {
+            // copied to the branch by read
+        }
+    }
+}
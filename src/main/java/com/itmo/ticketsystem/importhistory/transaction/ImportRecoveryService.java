@@ -0,0 +1,234 @@
+package com.itmo.ticketsystem.importhistory.transaction;
+
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.storage.MinIOAsyncService;
+import com.itmo.ticketsystem.common.storage.MinIOService;
+import com.itmo.ticketsystem.importhistory.ImportHistory;
+import com.itmo.ticketsystem.importhistory.ImportHistoryRepository;
+import com.itmo.ticketsystem.importhistory.job.ImportProgress;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Recovery of 2PC imports abandoned by a node that stopped: on startup and then
+ * periodically, in-doubt transactions are handed to
+ * {@link ImportTransactionCoordinator#recover}, and staged files no transaction
+ * knows of are deleted.
+ * <p>
+ * Only the node holding a PostgreSQL advisory lock sweeps. A transaction is
+ * only touched once it has been inactive for {@code import.recovery.stale-after},
+ * and the row of a transaction that is still running is locked by it and
+ * skipped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImportRecoveryService {
+
+    // Advisory lock key of the recovery leader
+    private static final long LEADER_LOCK_KEY = 0x696d706f7274L;
+
+    private static final List<TransactionState> IN_DOUBT = List.of(TransactionState.STAGING,
+            TransactionState.PREPARED, TransactionState.COMMITTING, TransactionState.ABORTING);
+    // Decided in the DB, possibly not yet in MinIO
+    private static final List<TransactionState> DECIDED = List.of(
+            TransactionState.COMMITTED, TransactionState.ABORTED);
+
+    // Staged files whose key names their transaction: COPY staging keys and direct uploads
+    private static final List<String> STAGING_PREFIXES = List.of("pending-");
+    private static final Pattern STAGING_KEY = Pattern.compile(
+            "^pending-([0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})-");
+
+    private final ImportConfig importConfig;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final ImportHistoryRepository importHistoryRepository;
+    private final ImportProgressService importProgressService;
+    private final ImportTransactionCoordinator coordinator;
+    private final MinIOService minIOService;
+    private final MinIOAsyncService minIOAsyncService;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, importConfig.getRecovery().getParallelism()));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        sweep();
+    }
+
+    @Scheduled(fixedDelayString = "${import.recovery.interval-ms:300000}",
+            initialDelayString = "${import.recovery.interval-ms:300000}")
+    public void sweep() {
+        if (!importConfig.getRecovery().isEnabled()) {
+            return;
+        }
+        // The lock is held by the transaction of this connection and released when it ends
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!tryLeaderLock(connection)) {
+                    log.debug("[2PC] RECOVER: another node is sweeping");
+                    return;
+                }
+                runSweep();
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.warn("[2PC] RECOVER: sweep failed: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runSweep() throws InterruptedException {
+        LocalDateTime cutoff = LocalDateTime.now().minus(importConfig.getRecovery().getStaleAfter());
+
+        List<ImportHistory> candidates = new ArrayList<>(importHistoryRepository.findByTransactionStatusIn(IN_DOUBT));
+        candidates.addAll(importHistoryRepository.findByTransactionStatusInAndPendingFilePathIsNotNull(DECIDED));
+
+        List<Callable<Boolean>> resolutions = new ArrayList<>();
+        for (ImportHistory history : candidates) {
+            if (isStale(history, cutoff)) {
+                resolutions.add(() -> resolve(history.getId(), cutoff));
+            }
+        }
+        int resolved = countSucceeded(executor.invokeAll(resolutions));
+
+        // Deletes are issued at once, bounded by minio.max-in-flight rather than the recovery threads
+        List<CompletableFuture<Boolean>> deletions = new ArrayList<>();
+        for (String path : findStagedFiles(cutoff)) {
+            deletions.add(deleteOrphan(path));
+        }
+        int reclaimed = countSucceeded(deletions);
+
+        if (resolved > 0 || reclaimed > 0) {
+            log.info("[2PC] RECOVER: resolved {} transaction(s), deleted {} orphaned file(s)", resolved, reclaimed);
+        }
+    }
+
+    private boolean resolve(Long id, LocalDateTime cutoff) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        try {
+            return Boolean.TRUE.equals(tt.execute(txStatus -> {
+                ImportHistory history = importHistoryRepository.lockForRecovery(id).orElse(null);
+                // Locked by a running transaction, or changed since the candidates were read
+                if (history == null || !isStale(history, cutoff)
+                        || !(IN_DOUBT.contains(history.getTransactionStatus())
+                                || history.getPendingFilePath() != null
+                                        && DECIDED.contains(history.getTransactionStatus()))) {
+                    return false;
+                }
+                try {
+                    coordinator.recover(history);
+                    return true;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("[2PC] RECOVER: import {} not resolved: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    private List<String> findStagedFiles(LocalDateTime cutoff) {
+        int limit = importConfig.getRecovery().getMaxOrphansPerSweep();
+        List<String> paths = new ArrayList<>();
+        try {
+            for (String prefix : STAGING_PREFIXES) {
+                if (paths.size() < limit) {
+                    paths.addAll(minIOService.listFiles(prefix, cutoff.atZone(ZoneId.systemDefault()),
+                            limit - paths.size()));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[2PC] RECOVER: could not list staged files: {}", e.getMessage());
+        }
+        return paths;
+    }
+
+    // A staged file is orphaned when no transaction was ever recorded for it
+    private CompletableFuture<Boolean> deleteOrphan(String path) {
+        Matcher key = STAGING_KEY.matcher(path);
+        if (!key.find() || importHistoryRepository.existsByTransactionId(UUID.fromString(key.group(1)))) {
+            return CompletableFuture.completedFuture(false);
+        }
+        log.info("[2PC] RECOVER: deleting orphaned staged file {}", path);
+        return minIOAsyncService.deleteFile(path).thenApply(deleted -> true);
+    }
+
+    private boolean isStale(ImportHistory history, LocalDateTime cutoff) {
+        LocalDateTime lastActivity = history.getUpdatedAt() != null ? history.getUpdatedAt() : history.getCreatedAt();
+        LocalDateTime progressed = importProgressService.findProgress(history.getId())
+                .map(ImportProgress::getUpdatedAt)
+                .orElse(null);
+        if (progressed != null && (lastActivity == null || progressed.isAfter(lastActivity))) {
+            lastActivity = progressed;
+        }
+        return lastActivity == null || lastActivity.isBefore(cutoff);
+    }
+
+    private static boolean tryLeaderLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            statement.setLong(1, LEADER_LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static int countSucceeded(List<? extends Future<Boolean>> results) throws InterruptedException {
+        int succeeded = 0;
+        for (Future<Boolean> result : results) {
+            try {
+                if (Boolean.TRUE.equals(result.get())) {
+                    succeeded++;
+                }
+            } catch (ExecutionException e) {
+                log.warn("[2PC] RECOVER: {}", e.getCause().getMessage());
+            }
+        }
+        return succeeded;
+    }
+}
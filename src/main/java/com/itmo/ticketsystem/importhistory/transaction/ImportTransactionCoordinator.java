@@ -1,20 +1,39 @@
 package com.itmo.ticketsystem.importhistory.transaction;
 
+import com.itmo.ticketsystem.common.ImportMode;
 import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.exceptions.TooManyRequestsException;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
 import com.itmo.ticketsystem.importhistory.ImportHistory;
+import com.itmo.ticketsystem.importhistory.ImportExecutor;
 import com.itmo.ticketsystem.importhistory.ImportHistoryRepository;
 import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
 import com.itmo.ticketsystem.importhistory.dto.ImportResultDto;
+import com.itmo.ticketsystem.importhistory.metrics.ImportMetricsService;
+import com.itmo.ticketsystem.importhistory.metrics.ImportPhase;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
 import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant;
+import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant.ClaimedJob;
 import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant.CommitResult;
+import com.itmo.ticketsystem.importhistory.transaction.participants.DatabaseParticipant.PrepareResult;
 import com.itmo.ticketsystem.importhistory.transaction.participants.MinIOParticipant;
 import com.itmo.ticketsystem.user.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
@@ -25,7 +44,30 @@ public class ImportTransactionCoordinator {
     private final MinIOParticipant minIOParticipant;
     private final DatabaseParticipant databaseParticipant;
 
+    private final ImportExecutor importExecutor;
     private final ImportHistoryRepository importHistoryRepository;
+    private final ImportMetricsService importMetricsService;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final ImportConfig importConfig;
+
+    // Runs the MinIO prepare of pipelined imports
+    private ExecutorService stagingExecutor;
+    // Records the end of MinIO commits and aborts, so no DB work runs on a storage client thread
+    private ExecutorService finisher;
+
+    @PostConstruct
+    void init() {
+        stagingExecutor = Executors.newFixedThreadPool(Math.max(1, importConfig.getPipeline().getStagingThreads()));
+        finisher = Executors.newSingleThreadExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stagingExecutor.shutdown();
+        stagingExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        finisher.shutdown();
+        finisher.awaitTermination(10, TimeUnit.SECONDS);
+    }
 
     public ImportResultDto run(
             MultipartFile file,
@@ -37,29 +79,220 @@ public class ImportTransactionCoordinator {
         log.info("[2PC] ========== Transaction {} STARTED ==========", txId);
 
         String stagingPath = null;
-        String finalPath = null;
-
+        Staging staging = null;
         try {
             // ============ PHASE 1: PREPARE ============
             log.info("[2PC] Transaction {} - PHASE 1: PREPARE", txId);
+            String finalPath = minIOParticipant.buildFinalPath(txId, request.getEntityType(), user, fileName);
+            stagingPath = minIOParticipant.buildPendingPath(txId, finalPath);
 
-            // 1.1 MinIO Prepare: load to staging
-            finalPath = minIOParticipant.buildFinalPath(request.getEntityType(), user, fileName);
-            stagingPath = minIOParticipant.prepare(txId, file, finalPath);
+            // 1.1 Database Prepare: recorded first, so a file rejected while staging is aborted in the history
+            databaseParticipant.prepare(txId, request, user, stagingPath);
 
-            // 1.2 Database Prepare
+            if (!request.isIncremental() && importConfig.getPipeline().isEnabled()) {
+                // 1.2 MinIO Prepare in the background, validating on the same pass: the upload runs
+                // while the DB imports, the import transaction only commits once the file is staged
+                // and valid, so the upload is read twice rather than three times
+                staging = new Staging(txId, file, finalPath, request);
+                request.setValidated(true);
+                log.info("[2PC] Transaction {} - PREPARING MinIO in parallel with the DB import", txId);
+
+                // ============ PHASE 2: COMMIT ============
+                return commitPhase(txId, request, user, stagingPath, finalPath, staging::vote);
+            }
+
+            // 1.2 MinIO Prepare: load to staging. A file that is validated before its import
+            // transaction is validated on the same pass (MINIO_PREPARE then includes validation)
+            boolean validateOnUpload = !request.isIncremental();
+            request.getMetrics().time(ImportPhase.MINIO_PREPARE, () -> minIOParticipant.prepare(txId, file,
+                    finalPath, validateOnUpload ? in -> importExecutor.validate(request, in) : null));
+            request.setValidated(validateOnUpload);
+
+            log.info("[2PC] Transaction {} - PREPARED (all participants ready)", txId);
+
+            // ============ PHASE 2: COMMIT ============
+            return commitPhase(txId, request, user, stagingPath, finalPath, null);
+
+        } catch (Exception e) {
+            if (staging != null) {
+                staging.cancel();
+            }
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
+
+    /**
+     * Runs an import whose file is already at {@code stagingPath}, e.g. uploaded
+     * by the client through a presigned URL: MinIO prepare is skipped.
+     */
+    public ImportResultDto runStaged(UUID txId, ImportRequestDto request, User user, String stagingPath) {
+        try {
             databaseParticipant.prepare(txId, request, user, stagingPath);
 
             log.info("[2PC] Transaction {} - PREPARED (all participants ready)", txId);
 
             // ============ PHASE 2: COMMIT ============
-            log.info("[2PC] Transaction {} - PHASE 2: COMMIT", txId);
+            String finalPath = minIOParticipant.extractFinalPath(txId, stagingPath);
+            return commitPhase(txId, request, user, stagingPath, finalPath, null);
 
-            // 2.1 Database Commit
-            CommitResult commitResult = databaseParticipant.commit(txId, request, user, finalPath);
+        } catch (Exception e) {
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
 
-            // 2.2 MinIO Commit: move file from staging to finalPath
-            minIOParticipant.commit(stagingPath, finalPath);
+    /**
+     * Async import, submission side: records the job, stages the file and queues
+     * the job. Returns as soon as the job is queued, phase 2 is run by
+     * {@link #runQueued}.
+     *
+     * @throws TooManyRequestsException if the queue quota rejects the job, before anything is staged
+     */
+    public ImportResultDto enqueue(
+            MultipartFile file,
+            ImportRequestDto request,
+            User user,
+            String fileName) {
+
+        UUID txId = UUID.randomUUID();
+        log.info("[2PC] ========== Transaction {} SUBMITTED ==========", txId);
+
+        String stagingPath = null;
+        try {
+            String finalPath = minIOParticipant.buildFinalPath(txId, request.getEntityType(), user, fileName);
+            stagingPath = minIOParticipant.buildPendingPath(txId, finalPath);
+
+            // Recorded first, as in run(): a crash while staging leaves a STAGING record that recovery aborts
+            PrepareResult queued = databaseParticipant.enqueue(txId, request, user, stagingPath, fileName, false);
+
+            request.getMetrics().time(ImportPhase.MINIO_PREPARE,
+                    () -> minIOParticipant.prepare(txId, file, finalPath));
+            databaseParticipant.markQueued(txId, request);
+
+            log.info("[2PC] Transaction {} - QUEUED (importId={})", txId, queued.txDbId());
+            return ImportResultDto.builder()
+                    .importId(queued.txDbId())
+                    .status(ImportStatus.PENDING)
+                    .createdCount(0)
+                    .build();
+
+        } catch (TooManyRequestsException e) {
+            log.info("[2PC] Transaction {} - REJECTED: {}", txId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
+
+    /**
+     * Queues an import whose file is already at {@code stagingPath}. A rejection
+     * by the queue quota is thrown and leaves the staged file to the caller.
+     */
+    public ImportResultDto enqueueStaged(UUID txId, ImportRequestDto request, User user, String stagingPath,
+            String fileName) {
+        try {
+            PrepareResult queued = databaseParticipant.enqueue(txId, request, user, stagingPath, fileName, true);
+
+            log.info("[2PC] Transaction {} - QUEUED (importId={})", txId, queued.txDbId());
+            return ImportResultDto.builder()
+                    .importId(queued.txDbId())
+                    .status(ImportStatus.PENDING)
+                    .createdCount(0)
+                    .build();
+
+        } catch (TooManyRequestsException e) {
+            log.info("[2PC] Transaction {} - REJECTED: {}", txId, e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
+
+    /**
+     * Async import, worker side: runs phase 2 of a job claimed from the queue.
+     */
+    public ImportResultDto runQueued(ClaimedJob job, User user) {
+        UUID txId = job.txId();
+        ImportHistory history = importHistoryRepository
+                .findByTransactionId(txId)
+                .orElseThrow(() -> new IllegalStateException("ImportHistory not found for txId: " + txId));
+        log.info("[2PC] ========== Transaction {} STARTED by worker ==========", txId);
+
+        ImportRequestDto request = requestFromHistory(history);
+        String stagingPath = history.getPendingFilePath();
+        try {
+            String finalPath = minIOParticipant.extractFinalPath(txId, stagingPath);
+            return commitPhase(txId, request, user, stagingPath, finalPath, null);
+        } catch (Exception e) {
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
+
+    /**
+     * Continues a SUSPENDED chunked import from its checkpoint. The staged file is
+     * still in MinIO, so only phase 2 is repeated.
+     */
+    public ImportResultDto resume(ImportHistory history, User user) {
+        UUID txId = history.getTransactionId();
+        String stagingPath = history.getPendingFilePath();
+        log.info("[2PC] ========== Transaction {} RESUMED from {} ==========", txId, history.getCommittedOffset());
+
+        ImportRequestDto request = requestFromHistory(history);
+        try {
+            String finalPath = minIOParticipant.extractFinalPath(txId, stagingPath);
+            return commitPhase(txId, request, user, stagingPath, finalPath, null);
+        } catch (Exception e) {
+            return handleFailure(txId, request, stagingPath, e);
+        }
+    }
+
+    // Rebuilds the import request of a staged file
+    private ImportRequestDto requestFromHistory(ImportHistory history) {
+        ImportRequestDto request = ImportRequestDto.streaming(
+                history.getEntityType(),
+                history.getFormat() != null ? history.getFormat() : ImportFormat.JSON,
+                minIOParticipant.pendingSource(history.getPendingFilePath()));
+        request.setChunkSize(history.getChunkSize());
+        request.setImportId(history.getId());
+        request.setPartitions(history.getPartitions());
+        request.setMode(history.getMode() != null ? history.getMode() : ImportMode.INSERT);
+        request.setSizeBytes(history.getFileSize());
+        return request;
+    }
+
+    private ImportResultDto commitPhase(
+            UUID txId,
+            ImportRequestDto request,
+            User user,
+            String stagingPath,
+            String finalPath,
+            Runnable vote) throws Exception {
+        log.info("[2PC] Transaction {} - PHASE 2: COMMIT", txId);
+
+        // Per-row change events are collected and sent as one BULK_IMPORT event
+        // per entity type once the import is committed
+        try (ChangeEventPublisher.BulkScope changes = changeEventPublisher.beginBulk()) {
+            CommitResult commitResult;
+            try {
+                // 2.1 Database Commit
+                commitResult = databaseParticipant.commit(txId, request, user, finalPath, vote);
+            } catch (Exception e) {
+                // Chunks or archive levels committed before the failure stay in the database
+                if (request.isIncremental()) {
+                    changes.publish();
+                }
+                throw e;
+            }
+            changes.publish();
+
+            // 2.2 MinIO Commit: move file from staging to finalPath. The decision is
+            // recorded, so a failure here is rolled forward by recovery, not aborted;
+            // the result does not wait for it
+            long minioCommitStarted = System.nanoTime();
+            minIOParticipant.commit(stagingPath, finalPath).whenCompleteAsync((committed, e) -> {
+                request.getMetrics().add(ImportPhase.MINIO_COMMIT, System.nanoTime() - minioCommitStarted);
+                forgetOrLeave(txId, "commit", e);
+                importMetricsService.finish(txId, request.getEntityType(), request.getMetrics(), true);
+            }, finisher);
 
             log.info("[2PC] ========== Transaction {} COMMITTED (count={}) ==========", txId, commitResult.count());
 
@@ -72,23 +305,36 @@ public class ImportTransactionCoordinator {
                     .status(ImportStatus.SUCCESS)
                     .createdCount(commitResult.count())
                     .build();
+        }
+    }
 
-        } catch (Exception e) {
+    private ImportResultDto handleFailure(UUID txId, ImportRequestDto request, String stagingPath, Exception e) {
+        if (request.isIncremental() && databaseParticipant.hasCheckpoint(txId)) {
+            // ============ SUSPEND ============
+            // Committed chunks or levels cannot be rolled back: keep checkpoint and staged file for resume
+            log.error("[2PC] Transaction {} - SUSPENDING at checkpoint: {}", txId, e.getMessage(), e);
+            databaseParticipant.suspend(txId, e.getMessage());
+        } else {
             // ============ ABORT ============
             log.error("[2PC] Transaction {} - ABORTING: {}", txId, e.getMessage(), e);
             abort(txId, stagingPath, e.getMessage());
+        }
 
-            // Get the ImportHistory if it was created
-            ImportHistory history = importHistoryRepository.findByTransactionId(txId).orElse(null);
-            Long importId = history != null ? history.getId() : null;
+        importMetricsService.finish(txId, request.getEntityType(), request.getMetrics(), false);
 
-            return ImportResultDto.builder()
-                    .importId(importId)
-                    .status(ImportStatus.FAILED)
-                    .createdCount(0)
-                    .errorMessage(e.getMessage())
-                    .build();
-        }
+        // Get the ImportHistory if it was created
+        ImportHistory history = importHistoryRepository.findByTransactionId(txId).orElse(null);
+        Long importId = history != null ? history.getId() : null;
+        Integer createdCount = history != null && history.getTransactionStatus() == TransactionState.SUSPENDED
+                ? history.getCreatedCount()
+                : 0;
+
+        return ImportResultDto.builder()
+                .importId(importId)
+                .status(ImportStatus.FAILED)
+                .createdCount(createdCount)
+                .errorMessage(e.getMessage())
+                .build();
     }
 
     private void abort(UUID txId, String stagingPath, String errorMessage) {
@@ -101,13 +347,103 @@ public class ImportTransactionCoordinator {
             log.error("[2PC] Failed to abort database: {}", e.getMessage());
         }
 
-        // MinIO abort (delete staging file)
-        try {
-            minIOParticipant.abort(stagingPath);
-        } catch (Exception e) {
-            log.error("[2PC] Failed to abort MinIO: {}", e.getMessage());
-        }
+        // MinIO abort (delete staging file), the record keeps the path until it is gone
+        minIOParticipant.abort(stagingPath)
+                .whenCompleteAsync((aborted, e) -> forgetOrLeave(txId, "abort", e), finisher);
 
         log.info("[2PC] ========== Transaction {} ABORTED ==========", txId);
     }
+
+    // The staged file is settled: stop tracking it, or leave it to recovery if MinIO failed
+    private void forgetOrLeave(UUID txId, String action, Throwable e) {
+        if (e == null) {
+            databaseParticipant.forget(txId);
+            return;
+        }
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("[2PC] Transaction {} - MinIO {} failed, left for recovery: {}", txId, action, cause.getMessage());
+    }
+
+    /**
+     * Resolves a transaction left in doubt by a node that stopped while running it
+     * (see {@link ImportRecoveryService}). A commit decision that is recorded is
+     * rolled forward; without one the transaction is presumed aborted, unless
+     * parts of it are committed, then it is suspended so it can be resumed. The
+     * MinIO side finishes in the background, a failure is retried by the next
+     * sweep.
+     */
+    public void recover(ImportHistory history) throws Exception {
+        UUID txId = history.getTransactionId();
+        String stagingPath = history.getPendingFilePath();
+        switch (history.getTransactionStatus()) {
+            case COMMITTED -> {
+                log.info("[2PC] RECOVER: transaction {} committed, rolling MinIO forward", txId);
+                minIOParticipant.recoverCommit(stagingPath, history.getFilePath())
+                        .whenCompleteAsync((committed, e) -> forgetOrLeave(txId, "commit", e), finisher);
+            }
+            case ABORTED -> {
+                log.info("[2PC] RECOVER: transaction {} aborted, deleting staged file", txId);
+                minIOParticipant.abort(stagingPath)
+                        .whenCompleteAsync((aborted, e) -> forgetOrLeave(txId, "abort", e), finisher);
+            }
+            case STAGING, PREPARED, COMMITTING, ABORTING -> {
+                if (databaseParticipant.hasCheckpoint(txId)) {
+                    log.info("[2PC] RECOVER: transaction {} has committed parts, suspending", txId);
+                    databaseParticipant.suspend(txId, "Interrupted, resume to continue");
+                } else {
+                    log.info("[2PC] RECOVER: transaction {} in doubt, aborting", txId);
+                    abort(txId, stagingPath, "Interrupted before commit");
+                }
+            }
+            default -> log.debug("[2PC] RECOVER: transaction {} is {}, nothing to do",
+                    txId, history.getTransactionStatus());
+        }
+    }
+
+    /**
+     * MinIO prepare of a pipelined import, running next to the DB import.
+     */
+    private final class Staging {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Future<String> upload;
+
+        Staging(UUID txId, MultipartFile file, String finalPath, ImportRequestDto request) {
+            upload = stagingExecutor.submit(() -> {
+                String pendingPath = request.getMetrics().time(ImportPhase.MINIO_PREPARE, () -> minIOParticipant
+                        .prepare(txId, file, finalPath, in -> importExecutor.validate(request, in)));
+                if (cancelled.get()) {
+                    // The transaction was aborted while the upload was finishing
+                    minIOParticipant.abort(pendingPath).exceptionally(e -> {
+                        log.warn("[2PC] Could not delete cancelled upload {}: {}", pendingPath, e.getMessage());
+                        return null;
+                    });
+                }
+                return pendingPath;
+            });
+        }
+
+        // Vote of the MinIO participant: waits until the file is staged and validated, throws if either failed
+        void vote() {
+            try {
+                upload.get();
+                log.info("[2PC] MinIO participant voted to commit");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for MinIO prepare", e);
+            } catch (ExecutionException e) {
+                // Invalid records are reported as by the validation stage
+                if (e.getCause() instanceof IllegalArgumentException invalid) {
+                    throw invalid;
+                }
+                throw new IllegalStateException("MinIO prepare failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        // Interrupts the upload; an upload that still completes deletes itself, and so does the last
+        // request of an interrupted one once it is stored
+        void cancel() {
+            cancelled.set(true);
+            upload.cancel(true);
+        }
+    }
 }
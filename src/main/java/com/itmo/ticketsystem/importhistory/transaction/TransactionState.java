@@ -1,9 +1,13 @@
 package com.itmo.ticketsystem.importhistory.transaction;
 
 public enum TransactionState {
+    STAGING, // Async job recorded, its file is still being uploaded
+    QUEUED, // File staged, waiting for an import worker
     PREPARED,
     COMMITTING,
     COMMITTED,
     ABORTING,
-    ABORTED
+    ABORTED,
+    SUSPENDED, // Chunked import stopped after a committed checkpoint, can be resumed
+    REVERTED // Rows created by the import were deleted
 }
@@ -1,20 +1,40 @@
 package com.itmo.ticketsystem.importhistory.transaction.participants;
 
 import com.itmo.ticketsystem.common.ImportStatus;
+import com.itmo.ticketsystem.common.config.ImportConfig;
+import com.itmo.ticketsystem.common.exceptions.TooManyRequestsException;
+import com.itmo.ticketsystem.importhistory.ArchiveImportExecutor;
 import com.itmo.ticketsystem.importhistory.ImportExecutor;
 import com.itmo.ticketsystem.importhistory.ImportHistory;
 import com.itmo.ticketsystem.importhistory.ImportHistoryRepository;
+import com.itmo.ticketsystem.importhistory.PartitionedImportExecutor;
 import com.itmo.ticketsystem.importhistory.dto.ImportRequestDto;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressService;
+import com.itmo.ticketsystem.importhistory.job.ImportProgressTracker;
+import com.itmo.ticketsystem.importhistory.metrics.ImportPhase;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartition;
+import com.itmo.ticketsystem.importhistory.partition.ImportPartitionRepository;
+import com.itmo.ticketsystem.importhistory.reader.ImportFormat;
 import com.itmo.ticketsystem.importhistory.transaction.TransactionState;
 import com.itmo.ticketsystem.user.User;
+import com.itmo.ticketsystem.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Component
@@ -24,6 +44,15 @@ public class DatabaseParticipant {
     private final PlatformTransactionManager transactionManager;
     private final ImportHistoryRepository importHistoryRepository;
     private final ImportExecutor importExecutor;
+    private final ArchiveImportExecutor archiveImportExecutor;
+    private final PartitionedImportExecutor partitionedImportExecutor;
+    private final ImportPartitionRepository importPartitionRepository;
+    private final ImportProgressService importProgressService;
+    private final ImportConfig importConfig;
+    private final UserRepository userRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     public record PrepareResult(Long txDbId) {
     }
@@ -31,6 +60,115 @@ public class DatabaseParticipant {
     public record CommitResult(int count) {
     }
 
+    // Async jobs not claimed yet, counted against the queue quota
+    public static final List<TransactionState> WAITING = List.of(TransactionState.STAGING, TransactionState.QUEUED);
+
+    public record ClaimedJob(Long importId, UUID txId, Long userId, Integer partitions, boolean archive) {
+    }
+
+    /**
+     * Async import: records a job. A file that is already staged is QUEUED right
+     * away; otherwise the job is STAGING until {@link #markQueued}, so workers do
+     * not claim it and recovery aborts it if the upload never finishes. Phase 2 is
+     * run later by whichever node claims the job.
+     *
+     * @throws TooManyRequestsException if the user already has
+     *                                  {@code import.admission.max-queued-per-user} jobs waiting
+     */
+    public PrepareResult enqueue(UUID txId, ImportRequestDto request, User user, String pendingPath, String fileName,
+            boolean staged) {
+        log.info("[2PC DB] ENQUEUE: queueing import job txId={}", txId);
+
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        return tt.execute(txStatus -> {
+            // Quota counted and job inserted under the user's row lock, so concurrent submits cannot both pass
+            userRepository.lockById(user.getId());
+            long queued = importHistoryRepository.countByUserIdAndTransactionStatusIn(user.getId(), WAITING);
+            if (queued >= importConfig.getAdmission().getMaxQueuedPerUser()) {
+                throw new TooManyRequestsException("Import rejected",
+                        "You already have " + queued + " imports waiting in the queue");
+            }
+
+            ImportHistory history = ImportHistory.builder()
+                    .transactionId(txId)
+                    .transactionStatus(staged ? TransactionState.QUEUED : TransactionState.STAGING)
+                    .user(user)
+                    .entityType(request.getEntityType())
+                    .status(ImportStatus.PENDING)
+                    .pendingFilePath(pendingPath)
+                    .fileName(fileName)
+                    .format(request.getFormat())
+                    .fileSize(request.getSizeBytes())
+                    .contentHash(request.getContentHash())
+                    .minioPrepareMs(request.getMetrics().millis(ImportPhase.MINIO_PREPARE))
+                    .chunkSize(request.getChunkSize())
+                    .partitions(request.getPartitions())
+                    .mode(request.getMode())
+                    .build();
+            history = importHistoryRepository.save(history);
+            request.setImportId(history.getId());
+
+            return new PrepareResult(history.getId());
+        });
+    }
+
+    /**
+     * Hands a STAGING job to the workers once its file is staged. Fails if the
+     * job was aborted meanwhile, e.g. by recovery.
+     */
+    public void markQueued(UUID txId, ImportRequestDto request) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.executeWithoutResult(txStatus -> {
+            ImportHistory history = importHistoryRepository.findByTransactionId(txId)
+                    .orElseThrow(() -> new IllegalStateException("ImportHistory not found for txId: " + txId));
+            if (history.getTransactionStatus() != TransactionState.STAGING) {
+                throw new IllegalStateException(
+                        "Transaction is not in STAGING state: " + history.getTransactionStatus());
+            }
+            history.setTransactionStatus(TransactionState.QUEUED);
+            history.setMinioPrepareMs(request.getMetrics().millis(ImportPhase.MINIO_PREPARE));
+            history.setUpdatedAt(LocalDateTime.now());
+            importHistoryRepository.save(history);
+        });
+        log.info("[2PC DB] ENQUEUE: job txId={} staged and queued", txId);
+    }
+
+    /**
+     * Claims the next QUEUED job (fair per user, see
+     * {@link ImportHistoryRepository#lockNextQueued}) and moves it to PREPARED. Uses
+     * {@code FOR UPDATE SKIP LOCKED}, so concurrent workers on several nodes
+     * never claim the same job.
+     */
+    public Optional<ClaimedJob> claimNextQueued(String nodeId, int maxRunningPerUser) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        return tt.execute(txStatus -> importHistoryRepository.lockNextQueued(maxRunningPerUser).map(history -> {
+            history.setTransactionStatus(TransactionState.PREPARED);
+            history.setClaimedBy(nodeId);
+            history.setClaimedAt(LocalDateTime.now());
+            history.setUpdatedAt(LocalDateTime.now());
+            importHistoryRepository.save(history);
+
+            log.info("[2PC DB] CLAIM: job txId={} claimed by {}", history.getTransactionId(), nodeId);
+            return new ClaimedJob(history.getId(), history.getTransactionId(), history.getUser().getId(),
+                    history.getPartitions(), history.getFormat() == ImportFormat.ZIP);
+        }));
+    }
+
+    /**
+     * Hands a claimed job back to the queue, e.g. when admission has no room for
+     * it. It keeps its place, the queue is ordered by creation time.
+     */
+    public void requeue(UUID txId) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.executeWithoutResult(txStatus -> importHistoryRepository.findByTransactionId(txId).ifPresent(history -> {
+            history.setTransactionStatus(TransactionState.QUEUED);
+            history.setClaimedBy(null);
+            history.setClaimedAt(null);
+            importHistoryRepository.save(history);
+        }));
+        log.debug("[2PC DB] CLAIM: job txId={} handed back to the queue", txId);
+    }
+
     public PrepareResult prepare(UUID txId, ImportRequestDto request, User user, String pendingPath) {
         log.info("[2PC DB] PREPARE: creating transaction record for txId={}", txId);
 
@@ -45,8 +183,16 @@ public class DatabaseParticipant {
                     .status(ImportStatus.PENDING)
                     .pendingFilePath(pendingPath)
                     .filePath(null)
+                    .format(request.getFormat())
+                    .fileSize(request.getSizeBytes())
+                    .contentHash(request.getContentHash())
+                    .minioPrepareMs(request.getMetrics().millis(ImportPhase.MINIO_PREPARE))
+                    .chunkSize(request.getChunkSize())
+                    .partitions(request.getPartitions())
+                    .mode(request.getMode())
                     .build();
             history = importHistoryRepository.save(history);
+            request.setImportId(history.getId());
 
             return new PrepareResult(history.getId());
         });
@@ -56,8 +202,32 @@ public class DatabaseParticipant {
     }
 
     public CommitResult commit(UUID txId, ImportRequestDto request, User user, String finalPath) {
+        return commit(txId, request, user, finalPath, null);
+    }
+
+    /**
+     * @param vote run inside the import transaction right before it commits, e.g.
+     *             to wait for a participant that prepared in parallel; throwing
+     *             rolls the import back. Only used by single-transaction imports.
+     */
+    public CommitResult commit(UUID txId, ImportRequestDto request, User user, String finalPath, Runnable vote) {
+        if (request.isArchive()) {
+            return commitArchive(txId, request, user, finalPath);
+        }
+        if (request.isChunked()) {
+            return commitChunked(txId, request, user, finalPath);
+        }
+        if (request.isPartitioned()) {
+            return commitPartitioned(txId, request, user, finalPath);
+        }
+
         log.info("[2PC DB] COMMIT: importing data for txId={}", txId);
 
+        // Validation stage: the whole file is checked before the import transaction starts
+        if (!request.isValidated()) {
+            importExecutor.validate(request, 0);
+        }
+
         TransactionTemplate tt = new TransactionTemplate(transactionManager);
         CommitResult result = tt.execute(txStatus -> {
             ImportHistory history = importHistoryRepository
@@ -69,20 +239,30 @@ public class DatabaseParticipant {
                         "Transaction is not in PREPARED state: " + history.getTransactionStatus());
             }
 
-            // Set COMMITTING status
+            // Set COMMITTING status. Flushed right away: the row stays locked while the
+            // import runs, which tells recovery that the transaction is alive
             history.setTransactionStatus(TransactionState.COMMITTING);
             history.setUpdatedAt(LocalDateTime.now());
-            importHistoryRepository.save(history);
+            importHistoryRepository.saveAndFlush(history);
 
             // Execute import
-            int count = importExecutor.executeImport(request, user);
+            ImportProgressTracker progress = importProgressService.start(history.getId(), request.getSizeBytes());
+            int count;
+            try {
+                count = importExecutor.executeImport(request, user, progress);
+            } finally {
+                progress.finish();
+            }
+
+            if (vote != null) {
+                vote.run();
+            }
 
             // Set COMMITTED status
             history.setTransactionStatus(TransactionState.COMMITTED);
             history.setStatus(ImportStatus.SUCCESS);
             history.setCreatedCount(count);
             history.setFilePath(finalPath);
-            history.setPendingFilePath(null);
             history.setUpdatedAt(LocalDateTime.now());
             importHistoryRepository.save(history);
 
@@ -93,6 +273,269 @@ public class DatabaseParticipant {
         return result;
     }
 
+    /**
+     * Chunked commit: every chunk of {@code request.chunkSize} records is imported
+     * and checkpointed ({@code committedOffset}) in its own transaction, so the
+     * persistence context never outgrows one chunk and a failure only loses the
+     * current chunk. A SUSPENDED transaction continues from its checkpoint.
+     */
+    public CommitResult commitChunked(UUID txId, ImportRequestDto request, User user, String finalPath) {
+        log.info("[2PC DB] COMMIT: chunked import (chunkSize={}) for txId={}", request.getChunkSize(), txId);
+
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        ImportHistory started = startIncrementalCommit(tt, txId);
+
+        int startOffset = started.getCommittedOffset() != null ? started.getCommittedOffset() : 0;
+        int alreadyCreated = started.getCreatedCount() != null ? started.getCreatedCount() : 0;
+        if (startOffset > 0) {
+            log.info("[2PC DB] COMMIT: resuming txId={} from checkpoint {}", txId, startOffset);
+        }
+
+        importExecutor.validate(request, startOffset);
+
+        ImportProgressTracker progress = importProgressService.start(started.getId(), request.getSizeBytes());
+        try {
+            importExecutor.executeChunkedImport(request, user, startOffset,
+                    (offset, size, batch) -> {
+                        Integer committed = tt.execute(txStatus -> {
+                            int count = callBatch(batch);
+
+                            ImportHistory history = findHistory(txId);
+                            history.setCommittedOffset(offset + size);
+                            history.setCreatedCount((history.getCreatedCount() != null
+                                    ? history.getCreatedCount() : 0) + count);
+                            history.setUpdatedAt(LocalDateTime.now());
+                            importHistoryRepository.save(history);
+
+                            log.debug("[2PC DB] COMMIT: chunk committed, txId={}, offset={}", txId, offset + size);
+                            return count;
+                        });
+                        // With open-in-view every chunk shares the request's session, which would grow with the file
+                        entityManager.clear();
+                        return committed;
+                    },
+                    progress);
+        } finally {
+            progress.finish();
+        }
+
+        CommitResult result = finishIncrementalCommit(tt, txId, finalPath);
+
+        log.info("[2PC DB] COMMIT: SUCCESS - {} records imported ({} before resume)",
+                result != null ? result.count() : 0, alreadyCreated);
+        return result;
+    }
+
+    /**
+     * Archive commit: the entity files of the archive are imported level by level
+     * of their dependency DAG, see {@link ArchiveImportExecutor}. Every committed
+     * level is checkpointed ({@code committedOffset} counts levels), so a
+     * SUSPENDED archive continues with the first level that was not committed.
+     */
+    public CommitResult commitArchive(UUID txId, ImportRequestDto request, User user, String finalPath) {
+        log.info("[2PC DB] COMMIT: archive import for txId={}", txId);
+
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        ImportHistory started = startIncrementalCommit(tt, txId);
+
+        int startLevel = started.getCommittedOffset() != null ? started.getCommittedOffset() : 0;
+        if (startLevel > 0) {
+            log.info("[2PC DB] COMMIT: resuming archive txId={} from level {}", txId, startLevel);
+        }
+
+        ImportProgressTracker progress = importProgressService.start(started.getId(), request.getSizeBytes());
+        try (ArchiveImportExecutor.Archive archive = archiveImportExecutor.open(request, progress)) {
+            archiveImportExecutor.validate(archive, startLevel, request.getMetrics());
+
+            for (int level = startLevel; level < archive.getLevels().size(); level++) {
+                int count = archiveImportExecutor.executeLevel(archive, level, request, user, progress);
+
+                int committedLevel = level + 1;
+                tt.executeWithoutResult(txStatus -> {
+                    ImportHistory history = findHistory(txId);
+                    history.setCommittedOffset(committedLevel);
+                    history.setCreatedCount((history.getCreatedCount() != null ? history.getCreatedCount() : 0)
+                            + count);
+                    history.setUpdatedAt(LocalDateTime.now());
+                    importHistoryRepository.save(history);
+                });
+                log.debug("[2PC DB] COMMIT: archive level {} committed, txId={}", level, txId);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Import failed: " + e.getMessage(), e);
+        } finally {
+            request.getMetrics().setBytesRead(progress.getBytesRead());
+            progress.finish();
+        }
+
+        CommitResult result = finishIncrementalCommit(tt, txId, finalPath);
+
+        log.info("[2PC DB] COMMIT: SUCCESS - {} archive records imported", result != null ? result.count() : 0);
+        return result;
+    }
+
+    /**
+     * Partitioned commit: batches are spread over {@code request.partitions}
+     * partitions, each committed in its own transaction by its own worker, see
+     * {@link PartitionedImportExecutor}. Atomicity is per partition: when some
+     * partitions fail, the committed ones stay and the import is suspended, a
+     * resume runs the failed partitions only.
+     */
+    public CommitResult commitPartitioned(UUID txId, ImportRequestDto request, User user, String finalPath) {
+        log.info("[2PC DB] COMMIT: partitioned import (partitions={}) for txId={}", request.getPartitions(), txId);
+
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        ImportHistory started = startIncrementalCommit(tt, txId);
+
+        // A resumed import keeps the layout of its first run, so batch k still lands in the same partition
+        List<ImportPartition> previous = importPartitionRepository.findByImportIdOrderByPartitionIndex(started.getId());
+        int partitionCount = previous.isEmpty() ? request.getPartitions() : previous.get(0).getPartitionCount();
+        int batchSize = previous.isEmpty() ? importConfig.getBatchSize() : previous.get(0).getBatchSize();
+        Set<Integer> committed = previous.stream()
+                .filter(partition -> partition.getStatus() == ImportStatus.SUCCESS)
+                .map(ImportPartition::getPartitionIndex)
+                .collect(Collectors.toSet());
+        if (!committed.isEmpty()) {
+            log.info("[2PC DB] COMMIT: resuming txId={}, partitions {} already committed", txId, committed);
+        }
+
+        importExecutor.validate(request, 0);
+
+        List<ImportPartition> results;
+        ImportProgressTracker progress = importProgressService.start(started.getId(), request.getSizeBytes());
+        try {
+            results = partitionedImportExecutor.execute(started.getId(), request, user, partitionCount, batchSize,
+                    committed, progress);
+        } finally {
+            progress.finish();
+        }
+
+        int created = importPartitionRepository.findByImportIdOrderByPartitionIndex(started.getId()).stream()
+                .filter(partition -> partition.getStatus() == ImportStatus.SUCCESS)
+                .mapToInt(partition -> partition.getCreatedCount() != null ? partition.getCreatedCount() : 0)
+                .sum();
+        tt.executeWithoutResult(txStatus -> {
+            ImportHistory history = findHistory(txId);
+            history.setCreatedCount(created);
+            history.setUpdatedAt(LocalDateTime.now());
+            importHistoryRepository.save(history);
+        });
+
+        List<ImportPartition> failed = results.stream()
+                .filter(partition -> partition.getStatus() != ImportStatus.SUCCESS)
+                .toList();
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException(failed.size() + " of " + partitionCount + " partition(s) failed: "
+                    + failed.stream()
+                            .map(partition -> "partition " + partition.getPartitionIndex() + ": "
+                                    + partition.getErrorMessage())
+                            .collect(Collectors.joining("; ")));
+        }
+
+        CommitResult result = finishIncrementalCommit(tt, txId, finalPath);
+
+        log.info("[2PC DB] COMMIT: SUCCESS - {} records imported in {} partition(s)",
+                result != null ? result.count() : 0, partitionCount);
+        return result;
+    }
+
+    // Chunked, partitioned and archive commits: PREPARED (or SUSPENDED on resume) -> COMMITTING
+    private ImportHistory startIncrementalCommit(TransactionTemplate tt, UUID txId) {
+        return tt.execute(txStatus -> {
+            ImportHistory history = findHistory(txId);
+
+            if (history.getTransactionStatus() != TransactionState.PREPARED
+                    && history.getTransactionStatus() != TransactionState.SUSPENDED) {
+                throw new IllegalStateException(
+                        "Transaction is not in PREPARED or SUSPENDED state: " + history.getTransactionStatus());
+            }
+
+            history.setTransactionStatus(TransactionState.COMMITTING);
+            history.setStatus(ImportStatus.PENDING);
+            history.setErrorMessage(null);
+            history.setUpdatedAt(LocalDateTime.now());
+            return importHistoryRepository.save(history);
+        });
+    }
+
+    private CommitResult finishIncrementalCommit(TransactionTemplate tt, UUID txId, String finalPath) {
+        return tt.execute(txStatus -> {
+            ImportHistory history = findHistory(txId);
+            history.setTransactionStatus(TransactionState.COMMITTED);
+            history.setStatus(ImportStatus.SUCCESS);
+            history.setFilePath(finalPath);
+            history.setUpdatedAt(LocalDateTime.now());
+            importHistoryRepository.save(history);
+
+            return new CommitResult(history.getCreatedCount() != null ? history.getCreatedCount() : 0);
+        });
+    }
+
+    /**
+     * True if a chunked, partitioned or archive import has durably committed at
+     * least one chunk, partition or level, i.e. it has to be suspended rather
+     * than aborted.
+     */
+    public boolean hasCheckpoint(UUID txId) {
+        return importHistoryRepository.findByTransactionId(txId)
+                .map(history -> history.getTransactionStatus() != TransactionState.COMMITTED
+                        && (history.getPartitions() != null
+                                ? importPartitionRepository.existsByImportIdAndStatus(history.getId(),
+                                        ImportStatus.SUCCESS)
+                                : (history.getChunkSize() != null || history.getFormat() == ImportFormat.ZIP)
+                                        && history.getCommittedOffset() != null
+                                        && history.getCommittedOffset() > 0))
+                .orElse(false);
+    }
+
+    public void suspend(UUID txId, String errorMessage) {
+        log.info("[2PC DB] SUSPEND: keeping checkpoint of txId={}", txId);
+
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.executeWithoutResult(txStatus -> {
+            importHistoryRepository.findByTransactionId(txId).ifPresent(history -> {
+                history.setTransactionStatus(TransactionState.SUSPENDED);
+                history.setStatus(ImportStatus.FAILED);
+                history.setErrorMessage(errorMessage);
+                history.setUpdatedAt(LocalDateTime.now());
+                importHistoryRepository.save(history);
+            });
+        });
+
+        log.info("[2PC DB] SUSPEND: SUCCESS");
+    }
+
+    private ImportHistory findHistory(UUID txId) {
+        return importHistoryRepository
+                .findByTransactionId(txId)
+                .orElseThrow(() -> new IllegalStateException("Transaction not found: " + txId));
+    }
+
+    private static int callBatch(Callable<Integer> batch) {
+        try {
+            return batch.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Last step of a transaction, once MinIO has committed or aborted too: the
+     * staged file is no longer tracked. Until then a COMMITTED or ABORTED record
+     * keeps its pending path, so recovery can finish the MinIO side after a
+     * crash.
+     */
+    public void forget(UUID txId) {
+        TransactionTemplate tt = new TransactionTemplate(transactionManager);
+        tt.executeWithoutResult(txStatus -> importHistoryRepository.findByTransactionId(txId).ifPresent(history -> {
+            history.setPendingFilePath(null);
+            importHistoryRepository.save(history);
+        }));
+        log.debug("[2PC DB] END: txId={} forgotten", txId);
+    }
+
     public void abort(UUID txId) {
         abort(txId, null);
     }
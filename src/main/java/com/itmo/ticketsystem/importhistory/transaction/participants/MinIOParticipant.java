@@ -1,17 +1,28 @@
 package com.itmo.ticketsystem.importhistory.transaction.participants;
 
 import com.itmo.ticketsystem.common.EntityType;
+import com.itmo.ticketsystem.common.storage.MinIOAsyncService;
+import com.itmo.ticketsystem.common.storage.MinIOConfig;
+import com.itmo.ticketsystem.common.storage.MinIOMultipartUpload;
 import com.itmo.ticketsystem.common.storage.MinIOService;
+import com.itmo.ticketsystem.importhistory.reader.TeeInputStream;
 import com.itmo.ticketsystem.user.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @Component
@@ -19,41 +30,145 @@ import java.util.UUID;
 public class MinIOParticipant {
 
     private final MinIOService minIOService;
+    private final MinIOAsyncService minIOAsyncService;
+    private final MinIOConfig minIOConfig;
+
+    // State tag of files staged under their final key (TAG commit strategy)
+    static final String STATE_TAG = "import-state";
+    static final String STATE_PENDING = "pending";
+    static final String STATE_COMMITTED = "committed";
+
+    /**
+     * Consumer of the upload stream, run on the same pass that stages the file.
+     */
+    @FunctionalInterface
+    public interface UploadConsumer {
+        void accept(InputStream inputStream) throws Exception;
+    }
 
     public String prepare(UUID txId, MultipartFile file, String targetPath) throws Exception {
+        return prepare(txId, file, targetPath, null);
+    }
+
+    /**
+     * Stages the file with a multipart upload that sends several parts at once.
+     * When {@code consumer} is given, it reads the upload and every byte it pulls
+     * is tee'd into the staging upload, so the file is read only once; the staged
+     * object is only completed if the consumer succeeds.
+     */
+    public String prepare(UUID txId, MultipartFile file, String targetPath, UploadConsumer consumer)
+            throws Exception {
         String pendingPath = buildPendingPath(txId, targetPath);
 
         log.info("[2PC MinIO] PREPARE: uploading to pending path: {}", pendingPath);
 
-        try (InputStream inputStream = file.getInputStream()) {
-            minIOService.uploadFile(
-                    pendingPath,
-                    inputStream,
-                    file.getContentType() != null ? file.getContentType() : "application/json",
-                    file.getSize());
+        String contentType = file.getContentType() != null ? file.getContentType() : "application/json";
+        Map<String, String> tags = isStagedInPlace(pendingPath, targetPath)
+                ? Map.of(STATE_TAG, STATE_PENDING)
+                : Map.of();
+        try (InputStream inputStream = file.getInputStream();
+                MinIOMultipartUpload upload = minIOService.openUpload(pendingPath, contentType, tags)) {
+            if (consumer != null) {
+                TeeInputStream tee = new TeeInputStream(inputStream, upload);
+                consumer.accept(StreamUtils.nonClosing(tee));
+                // The consumer may stop at the end of its document
+                tee.drain();
+            } else {
+                inputStream.transferTo(upload);
+            }
+            upload.complete();
         }
 
         log.info("[2PC MinIO] PREPARE: SUCCESS - file uploaded to {}", pendingPath);
         return pendingPath;
     }
 
-    public String commit(String pendingPath, String finalPath) throws Exception {
+    /**
+     * Direct upload: instead of receiving the file, hands out a presigned URL the
+     * client PUTs it to. The object lands at the pending path, as after
+     * {@link #prepare}.
+     */
+    public String presignUpload(String pendingPath, Duration expiry) throws Exception {
+        log.info("[2PC MinIO] PREPARE: presigning direct upload to pending path: {}", pendingPath);
+        return minIOService.presignedPutUrl(pendingPath, expiry);
+    }
+
+    /**
+     * Moves a staged file to its final path, or only marks it committed if it is
+     * staged in place. Completes with the final path.
+     */
+    public CompletableFuture<String> commit(String pendingPath, String finalPath) {
+        if (isStagedInPlace(pendingPath, finalPath)) {
+            // Only the tag is rewritten, the cost does not depend on the file size
+            log.info("[2PC MinIO] COMMIT: marking {} as committed", finalPath);
+            return minIOAsyncService.setTags(finalPath, Map.of(STATE_TAG, STATE_COMMITTED))
+                    .thenApply(tagged -> {
+                        log.info("[2PC MinIO] COMMIT: SUCCESS - file committed at {}", finalPath);
+                        return finalPath;
+                    });
+        }
+
         log.info("[2PC MinIO] COMMIT: moving {} -> {}", pendingPath, finalPath);
 
-        minIOService.copyFile(pendingPath, finalPath);
-        minIOService.deleteFile(pendingPath);
+        return minIOAsyncService.copyFile(pendingPath, finalPath)
+                .thenCompose(copied -> minIOAsyncService.deleteFile(pendingPath))
+                .thenApply(moved -> {
+                    log.info("[2PC MinIO] COMMIT: SUCCESS - file moved to {}", finalPath);
+                    return finalPath;
+                });
+    }
 
-        log.info("[2PC MinIO] COMMIT: SUCCESS - file moved to {}", finalPath);
-        return finalPath;
+    /**
+     * Repeats a commit that may have been interrupted: a file that was already
+     * moved is left as it is.
+     */
+    public CompletableFuture<String> recoverCommit(String pendingPath, String finalPath) {
+        if (isStagedInPlace(pendingPath, finalPath)) {
+            return commit(pendingPath, finalPath);
+        }
+        return minIOAsyncService.fileExists(pendingPath).thenCompose(staged -> {
+            if (!staged) {
+                log.info("[2PC MinIO] RECOVER: {} already moved to {}", pendingPath, finalPath);
+                return CompletableFuture.completedFuture(finalPath);
+            }
+            return commit(pendingPath, finalPath);
+        });
     }
 
-    public void abort(String pendingPath) {
+    /**
+     * Deletes a staged file. Deleting a file that does not exist succeeds, a
+     * failure completes the future exceptionally so the file stays tracked for
+     * recovery.
+     */
+    public CompletableFuture<Void> abort(String pendingPath) {
+        if (pendingPath == null || pendingPath.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
         log.info("[2PC MinIO] ABORT: deleting pending file: {}", pendingPath);
+        // A file staged under its final key may already be committed, by this or an earlier import
+        return isCommitted(pendingPath).thenCompose(committed -> {
+            if (committed) {
+                log.warn("[2PC MinIO] ABORT: {} is committed, keeping it", pendingPath);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return minIOAsyncService.deleteFile(pendingPath)
+                    .thenRun(() -> log.info("[2PC MinIO] ABORT: SUCCESS - pending file deleted"));
+        });
+    }
 
-        if (pendingPath != null && !pendingPath.isEmpty()) {
-            minIOService.deleteFileSafe(pendingPath);
-            log.info("[2PC MinIO] ABORT: SUCCESS - pending file deleted");
-        }
+    /**
+     * Re-opens a staged file, e.g. to resume a suspended chunked import.
+     */
+    public InputStreamSource pendingSource(String pendingPath) {
+        return () -> {
+            try {
+                return minIOService.downloadFile(pendingPath);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to open pending file " + pendingPath + ": " + e.getMessage(), e);
+            }
+        };
     }
 
     public boolean pendingFileExists(String pendingPath) {
@@ -64,10 +179,43 @@ public class MinIOParticipant {
         return "pending-" + txId.toString() + "-";
     }
 
+    /**
+     * Staging path of a file. With the TAG commit strategy it is the final path
+     * itself, the file is marked pending by a tag instead of its key.
+     */
     public String buildPendingPath(UUID txId, String targetPath) {
+        if (minIOConfig.getCommitStrategy() == MinIOConfig.CommitStrategy.TAG) {
+            return targetPath;
+        }
         return buildPendingPathPrefix(txId) + targetPath;
     }
 
+    /**
+     * Staging path of a direct upload. Unlike {@link #buildPendingPath} it is
+     * never the final path: the presigned URL stays valid after the commit, so
+     * the upload is always copied to its final key.
+     */
+    public String buildUploadPendingPath(UUID uploadId, String targetPath) {
+        return buildPendingPathPrefix(uploadId) + targetPath;
+    }
+
+    // Only a missing file is not committed, other failures fail the abort so recovery retries it
+    private CompletableFuture<Boolean> isCommitted(String path) {
+        return minIOAsyncService.getTags(path)
+                .thenApply(tags -> STATE_COMMITTED.equals(tags.get(STATE_TAG)))
+                .exceptionally(e -> {
+                    if (MinIOAsyncService.isNoSuchKey(e)) {
+                        return false;
+                    }
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                });
+    }
+
+    // Decided by the paths, not the current strategy: files staged before a switch commit as they were staged
+    private static boolean isStagedInPlace(String pendingPath, String finalPath) {
+        return pendingPath.equals(finalPath);
+    }
+
     public String extractFinalPath(UUID txId, String pendingPath) {
         String prefix = buildPendingPathPrefix(txId);
         if (pendingPath.startsWith(prefix)) {
@@ -76,15 +224,31 @@ public class MinIOParticipant {
         return pendingPath;
     }
 
-    public String buildFinalPath(EntityType entityType, User user, String originalFileName) {
+    /**
+     * Final path of an imported file. The transaction id keeps it unique: with
+     * the TAG commit strategy the file is staged under this key, so two imports
+     * of the same file name within a second must not share it.
+     */
+    public String buildFinalPath(UUID txId, EntityType entityType, User user, String originalFileName) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
         String fileName = (originalFileName != null && !originalFileName.isEmpty())
                 ? originalFileName
                 : "import.json";
-        return String.format("%s/%d/%s-%s",
+        return String.format("%s/%d/%s-%s-%s",
                 entityType.name().toLowerCase(),
                 user.getId(),
                 timestamp,
+                txId,
                 fileName);
     }
+
+    /**
+     * Final path of a direct upload. The entity type is not known before the
+     * file is read, so these are kept apart under {@code uploads/}; the upload
+     * id makes the path unique and lets it be derived again when the import
+     * is started.
+     */
+    public String buildUploadFinalPath(UUID uploadId, User user, String originalFileName) {
+        return String.format("uploads/%d/%s-%s", user.getId(), uploadId, originalFileName);
+    }
 }
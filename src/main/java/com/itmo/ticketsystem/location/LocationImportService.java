@@ -1,33 +1,61 @@
 package com.itmo.ticketsystem.location;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.service.BulkCopyWriter;
+import com.itmo.ticketsystem.common.service.BulkUpsertWriter;
 import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.service.UniqueKeyType;
+import com.itmo.ticketsystem.common.service.UpsertImporter;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
 import com.itmo.ticketsystem.location.dto.LocationCreateDto;
 import com.itmo.ticketsystem.user.User;
-import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 @Service
-public class LocationImportService extends Importer<LocationCreateDto> {
+public class LocationImportService extends Importer<LocationCreateDto> implements UpsertImporter<LocationCreateDto> {
+
+    private static final String[] COPY_COLUMNS = { "x", "y", "z", "name", "created_by", "import_id" };
+    private static final String[] UPSERT_KEY = { "name" };
+    private static final String[] UPSERT_UPDATED = { "x", "y", "z" };
 
     private final LocationService locationService;
+    private final LocationValidator locationValidator;
+    private final BulkCopyWriter bulkCopyWriter;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final ChangeEventPublisher changeEventPublisher;
 
     public LocationImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            LocationService locationService) {
-        super(LocationCreateDto.class, objectMapper, validator);
+            LocationService locationService,
+            LocationValidator locationValidator,
+            BulkCopyWriter bulkCopyWriter,
+            BulkUpsertWriter bulkUpsertWriter,
+            ChangeEventPublisher changeEventPublisher) {
+        super(LocationCreateDto.class);
         this.locationService = locationService;
+        this.locationValidator = locationValidator;
+        this.bulkCopyWriter = bulkCopyWriter;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.changeEventPublisher = changeEventPublisher;
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(LocationCreateDto[] locationDtos, User currentUser) throws Exception {
-        int count = 0;
+    protected int doImportInternal(LocationCreateDto[] locationDtos, int offset, Long importId, User currentUser)
+            throws Exception {
+        if (getImportConfig().isCopyEnabled()) {
+            return copyImport(locationDtos, importId, currentUser);
+        }
+
+        // Business layer uniqueness constraint, checked once for the whole batch
+        locationValidator.checkNamesUniqueness(Arrays.stream(locationDtos).map(LocationCreateDto::getName).toList());
+
         for (int i = 0; i < locationDtos.length; i++) {
             LocationCreateDto dto = locationDtos[i];
-            validateDto(dto, i);
 
             // TODO: show that this really works
             // First location should be saved, error on the second
@@ -35,11 +63,51 @@ public class LocationImportService extends Importer<LocationCreateDto> {
             // throw new RuntimeException("Mannual error in the middle of transaction");
             // }
 
-            // Use service layer to enforce business logic and uniqueness constraints
-            locationService.createLocation(dto, currentUser);
-            count++;
+            // Use service layer to enforce business logic
+            locationService.createPrecheckedLocation(dto, importId, currentUser);
+        }
+        return locationDtos.length;
+    }
+
+    @Override
+    @Transactional
+    public int doUpsertInternal(LocationCreateDto[] locationDtos, int offset, Long importId, User currentUser) {
+        rejectDuplicateKeys(locationDtos);
+
+        // Locations without a name have no natural key and are always inserted (NULLs never conflict)
+        BulkUpsertWriter.Result result = bulkUpsertWriter.upsert(Location.class, "locations", COPY_COLUMNS,
+                UPSERT_KEY, UPSERT_UPDATED, locationDtos,
+                dto -> new Object[] { dto.getX(), dto.getY(), dto.getZ(), dto.getName(), currentUser.getId(),
+                        importId });
+
+        if (result.inserted() > 0) {
+            changeEventPublisher.publish("locations", ChangeEvent.Operation.CREATE, null, result.inserted());
+        }
+        if (result.updated() > 0) {
+            changeEventPublisher.publish("locations", ChangeEvent.Operation.UPDATE, null, result.updated());
         }
+        return locationDtos.length;
+    }
+
+    @Override
+    protected Map<UniqueKeyType, String> uniqueKeys(LocationCreateDto dto) {
+        return dto.getName() != null ? Map.of(UniqueKeyType.LOCATION_NAME, dto.getName()) : Map.of();
+    }
+
+    @Override
+    protected boolean isCopyImport() {
+        return getImportConfig().isCopyEnabled();
+    }
+
+    private int copyImport(LocationCreateDto[] locationDtos, Long importId, User currentUser) {
+        // Business layer uniqueness constraint, checked once for the whole batch
+        locationValidator.checkNamesUniqueness(Arrays.stream(locationDtos).map(LocationCreateDto::getName).toList());
+
+        long count = bulkCopyWriter.copy("locations", COPY_COLUMNS, locationDtos,
+                dto -> new Object[] { dto.getX(), dto.getY(), dto.getZ(), dto.getName(), currentUser.getId(),
+                        importId });
 
-        return count;
+        changeEventPublisher.publish("locations", ChangeEvent.Operation.CREATE, null, count);
+        return (int) count;
     }
 }
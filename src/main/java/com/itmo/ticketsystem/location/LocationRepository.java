@@ -3,9 +3,14 @@ package com.itmo.ticketsystem.location;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import jakarta.persistence.QueryHint;
 
 @Repository
@@ -23,4 +28,11 @@ public interface LocationRepository extends JpaRepository<Location, Long> {
     Page<Location> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
     boolean existsByName(String name);
+
+    @Query("SELECT l.name FROM Location l WHERE l.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    // Pairs of name and ID, without loading the locations
+    @Query("SELECT l.name, l.id FROM Location l WHERE l.name IN :names")
+    List<Object[]> findIdsByNames(@Param("names") Collection<String> names);
 }
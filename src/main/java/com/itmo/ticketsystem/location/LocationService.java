@@ -58,6 +58,26 @@ public class LocationService {
         // Business layer uniqueness constraint
         locationValidator.checkNameUniqueness(location.getName());
 
+        return saveLocation(location);
+    }
+
+    /**
+     * Import variant of {@link #createLocation}: the importer has already checked
+     * name uniqueness for the whole chunk, so no per-row query is run. The row
+     * is tagged with the import that writes it.
+     */
+    @Transactional
+    public LocationDto createPrecheckedLocation(LocationCreateDto locationCreateDto, Long importId,
+            User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        Location location = locationMapper.toEntity(locationCreateDto);
+        location.setCreatedBy(currentUser);
+        location.setImportId(importId);
+        return saveLocation(location);
+    }
+
+    private LocationDto saveLocation(Location location) {
         Location savedLocation = locationRepository.save(location);
 
         LocationDto dto = locationMapper.toDto(savedLocation);
@@ -5,6 +5,11 @@ import com.itmo.ticketsystem.common.exceptions.BusinessValidationException;
 
 import lombok.RequiredArgsConstructor;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 @RequiredArgsConstructor
 public class LocationValidator {
@@ -17,4 +22,26 @@ public class LocationValidator {
             throw new BusinessValidationException("Location name '" + name + "' already exists");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Set-based variant of {@link #checkNameUniqueness(String)}: duplicates
+     * inside {@code names} and names already stored are both rejected, with a
+     * single query for the whole collection.
+     */
+    public void checkNamesUniqueness(Collection<String> names) {
+        Set<String> normalized = new HashSet<>();
+        for (String name : names) {
+            if (name != null && !normalized.add(name.trim())) {
+                throw new BusinessValidationException("Location name '" + name + "' is duplicated in import");
+            }
+        }
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        List<String> existing = locationRepository.findExistingNames(normalized);
+        if (!existing.isEmpty()) {
+            throw new BusinessValidationException("Location name '" + existing.get(0) + "' already exists");
+        }
+    }
+}
@@ -13,12 +13,17 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "persons", uniqueConstraints = @UniqueConstraint(columnNames = "passport_id"))
+@Table(name = "persons", uniqueConstraints = @UniqueConstraint(columnNames = "passport_id"),
+        indexes = {
+                @Index(name = "idx_persons_import_id", columnList = "import_id"),
+                @Index(name = "idx_persons_location_id", columnList = "location_id")
+        })
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
@@ -57,6 +62,14 @@ public class Person {
     @JoinColumn(name = "created_by")
     private User createdBy;
 
+    @Column(name = "import_id")
+    private Long importId;
+
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "person", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Ticket> tickets = new ArrayList<>();
 }
@@ -1,65 +1,153 @@
 package com.itmo.ticketsystem.person;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.itmo.ticketsystem.common.service.EntityResolutionService;
+import com.itmo.ticketsystem.common.service.BulkUpsertWriter;
+import com.itmo.ticketsystem.common.service.ImportGraphWriter;
 import com.itmo.ticketsystem.common.service.Importer;
-import com.itmo.ticketsystem.location.LocationService;
-import com.itmo.ticketsystem.location.dto.LocationDto;
-import com.itmo.ticketsystem.person.dto.PersonCreateDto;
-import com.itmo.ticketsystem.person.dto.PersonDto;
+import com.itmo.ticketsystem.common.service.UniqueKeyType;
+import com.itmo.ticketsystem.common.service.UpsertImporter;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
+import com.itmo.ticketsystem.location.Location;
+import com.itmo.ticketsystem.location.LocationRepository;
+import com.itmo.ticketsystem.location.LocationValidator;
+import com.itmo.ticketsystem.location.dto.LocationCreateDto;
 import com.itmo.ticketsystem.person.dto.PersonImportDto;
 import com.itmo.ticketsystem.user.User;
-import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
-public class PersonImportService extends Importer<PersonImportDto> {
+public class PersonImportService extends Importer<PersonImportDto> implements UpsertImporter<PersonImportDto> {
 
-    private final PersonService personService;
-    private final LocationService locationService;
-    private final EntityResolutionService entityResolutionService;
+    private static final String[] UPSERT_COLUMNS = {
+            "eye_color", "hair_color", "location_id", "passport_id", "nationality", "created_by", "import_id" };
+    private static final String[] UPSERT_KEY = { "passport_id" };
+    private static final String[] UPSERT_UPDATED = { "eye_color", "hair_color", "location_id", "nationality" };
+
+    private final ImportGraphWriter importGraphWriter;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final LocationRepository locationRepository;
+    private final ChangeEventPublisher changeEventPublisher;
+    private final LocationValidator locationValidator;
+    private final PersonValidator personValidator;
 
     public PersonImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            PersonService personService,
-            LocationService locationService,
-            EntityResolutionService entityResolutionService) {
-        super(PersonImportDto.class, objectMapper, validator);
-        this.personService = personService;
-        this.locationService = locationService;
-        this.entityResolutionService = entityResolutionService;
+            ImportGraphWriter importGraphWriter,
+            BulkUpsertWriter bulkUpsertWriter,
+            LocationRepository locationRepository,
+            ChangeEventPublisher changeEventPublisher,
+            LocationValidator locationValidator,
+            PersonValidator personValidator) {
+        super(PersonImportDto.class);
+        this.importGraphWriter = importGraphWriter;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.locationRepository = locationRepository;
+        this.changeEventPublisher = changeEventPublisher;
+        this.locationValidator = locationValidator;
+        this.personValidator = personValidator;
+    }
+
+    @Override
+    @Transactional
+    protected int doImportInternal(PersonImportDto[] personDtos, int offset, Long importId, User currentUser)
+            throws Exception {
+        // Uniqueness constraints, checked once for the whole batch
+        locationValidator.checkNamesUniqueness(Arrays.stream(personDtos)
+                .map(dto -> dto.getLocation().getName())
+                .filter(Objects::nonNull)
+                .toList());
+        personValidator.checkPassportIDsUniqueness(Arrays.stream(personDtos)
+                .map(PersonImportDto::getPassportID)
+                .toList());
+
+        // Persons and their locations in one pass
+        return importGraphWriter.writePersons(personDtos, importId, currentUser);
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(PersonImportDto[] personDtos, User currentUser) throws Exception {
-
-        List<Person> persons = new ArrayList<>();
-        for (int i = 0; i < personDtos.length; i++) {
-            PersonImportDto dto = personDtos[i];
-            validateDto(dto, i);
-
-            // Convert ImportDto to CreateDto and use existing PersonService
-            PersonCreateDto createDto = new PersonCreateDto();
-            createDto.setEyeColor(dto.getEyeColor());
-            createDto.setHairColor(dto.getHairColor());
-            createDto.setPassportID(dto.getPassportID());
-            createDto.setNationality(dto.getNationality());
-
-            // Create location
-            LocationDto createdLocation = locationService.createLocation(dto.getLocation(), currentUser);
-            createDto.setLocationId(createdLocation.getId());
-
-            // Create person
-            PersonDto createdPerson = personService.createPerson(createDto, currentUser);
-            persons.add(entityResolutionService.resolvePerson(createdPerson.getId()));
+    public int doUpsertInternal(PersonImportDto[] personDtos, int offset, Long importId, User currentUser) {
+        rejectDuplicateKeys(personDtos);
+
+        Map<String, Long> locationIdsByName = new HashMap<>();
+        for (Object[] row : locationRepository.findIdsByNames(Arrays.stream(personDtos)
+                .map(dto -> dto.getLocation().getName())
+                .filter(Objects::nonNull)
+                .toList())) {
+            locationIdsByName.put((String) row[0], (Long) row[1]);
+        }
+
+        // Locations are shared by name and never rewritten here: a stored name is reused as is, an
+        // unknown name gets one new location for all persons of the batch, a missing name one per person
+        List<LocationCreateDto> created = new ArrayList<>();
+        Map<String, Integer> createdByName = new HashMap<>();
+        Map<String, Integer> createdIndexes = new HashMap<>();
+        Map<String, Long> locationIds = new HashMap<>();
+        for (PersonImportDto dto : personDtos) {
+            String name = dto.getLocation().getName();
+            Long locationId = name == null ? null : locationIdsByName.get(name);
+            if (locationId != null) {
+                locationIds.put(dto.getPassportID(), locationId);
+                continue;
+            }
+            Integer index = name == null ? null : createdByName.get(name);
+            if (index == null) {
+                index = created.size();
+                created.add(dto.getLocation());
+                if (name != null) {
+                    createdByName.put(name, index);
+                }
+            }
+            createdIndexes.put(dto.getPassportID(), index);
+        }
+
+        List<Location> newLocations = importGraphWriter.writeLocations(created, importId, currentUser);
+        createdIndexes.forEach((passportID, index) -> locationIds.put(passportID, newLocations.get(index).getId()));
+
+        // A stored person is moved to the resolved location, its previous one is left untouched
+        BulkUpsertWriter.Result persons = bulkUpsertWriter.upsert(Person.class, "persons", UPSERT_COLUMNS,
+                UPSERT_KEY, UPSERT_UPDATED, personDtos,
+                dto -> new Object[] { dto.getEyeColor(), dto.getHairColor(), locationIds.get(dto.getPassportID()),
+                        dto.getPassportID(), dto.getNationality(), currentUser.getId(), importId });
+
+        if (persons.inserted() > 0) {
+            changeEventPublisher.publish("persons", ChangeEvent.Operation.CREATE, null, persons.inserted());
+        }
+        if (persons.updated() > 0) {
+            changeEventPublisher.publish("persons", ChangeEvent.Operation.UPDATE, null, persons.updated());
+        }
+        return personDtos.length;
+    }
+
+    @Override
+    protected Map<UniqueKeyType, String> uniqueKeys(PersonImportDto dto) {
+        Map<UniqueKeyType, String> keys = new EnumMap<>(UniqueKeyType.class);
+        if (dto.getLocation() != null && dto.getLocation().getName() != null) {
+            keys.put(UniqueKeyType.LOCATION_NAME, dto.getLocation().getName());
         }
+        if (dto.getPassportID() != null) {
+            keys.put(UniqueKeyType.PASSPORT_ID, dto.getPassportID());
+        }
+        return keys;
+    }
+
+    @Override
+    protected Map<UniqueKeyType, String> upsertKeys(PersonImportDto dto) {
+        // Locations are shared by name in an upsert, only the passport ID must be unique
+        return dto.getPassportID() != null ? Map.of(UniqueKeyType.PASSPORT_ID, dto.getPassportID()) : Map.of();
+    }
 
-        return persons.size();
+    @Override
+    protected int rowCount(PersonImportDto dto) {
+        // Person and its location
+        return 2;
     }
 }
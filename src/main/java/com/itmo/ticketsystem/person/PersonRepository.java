@@ -3,10 +3,20 @@ package com.itmo.ticketsystem.person;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface PersonRepository extends JpaRepository<Person, Long> {
 
     Page<Person> findByPassportIDContainingIgnoreCase(String passportID, Pageable pageable);
+
+    @Query("SELECT p.passportID FROM Person p WHERE p.passportID IN :passportIDs")
+    List<String> findExistingPassportIDs(@Param("passportIDs") Collection<String> passportIDs);
+
+    List<Person> findByPassportIDIn(Collection<String> passportIDs);
 }
@@ -0,0 +1,39 @@
+package com.itmo.ticketsystem.person;
+
+import org.springframework.stereotype.Component;
+import com.itmo.ticketsystem.common.exceptions.BusinessValidationException;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class PersonValidator {
+    private final PersonRepository personRepository;
+
+    /**
+     * Passport IDs are unique: duplicates inside {@code passportIDs} and IDs
+     * already stored are both rejected, with a single query for the whole
+     * collection instead of a constraint violation at flush time.
+     */
+    public void checkPassportIDsUniqueness(Collection<String> passportIDs) {
+        Set<String> unique = new HashSet<>();
+        for (String passportID : passportIDs) {
+            if (passportID != null && !unique.add(passportID)) {
+                throw new BusinessValidationException("Passport ID '" + passportID + "' is duplicated in import");
+            }
+        }
+        if (unique.isEmpty()) {
+            return;
+        }
+
+        List<String> existing = personRepository.findExistingPassportIDs(unique);
+        if (!existing.isEmpty()) {
+            throw new BusinessValidationException("Passport ID '" + existing.get(0) + "' already exists");
+        }
+    }
+}
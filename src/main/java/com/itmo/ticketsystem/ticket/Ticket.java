@@ -18,7 +18,14 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Date;
 
 @Entity
-@Table(name = "tickets")
+// Foreign keys are indexed so that deleting referenced rows (e.g. reverting an import) does not scan tickets
+@Table(name = "tickets", indexes = {
+        @Index(name = "idx_tickets_import_id", columnList = "import_id"),
+        @Index(name = "idx_tickets_coordinates_id", columnList = "coordinates_id"),
+        @Index(name = "idx_tickets_person_id", columnList = "person_id"),
+        @Index(name = "idx_tickets_event_id", columnList = "event_id"),
+        @Index(name = "idx_tickets_venue_id", columnList = "venue_id")
+})
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
@@ -92,6 +99,10 @@ public class Ticket {
     @JoinColumn(name = "updated_by")
     private User updatedBy;
 
+    // Import that created the row, null for rows created through the API
+    @Column(name = "import_id")
+    private Long importId;
+
     @Column(name = "updated_at")
     private Date updatedAt;
 
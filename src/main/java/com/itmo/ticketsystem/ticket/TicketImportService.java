@@ -1,130 +1,109 @@
 package com.itmo.ticketsystem.ticket;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.service.ImportGraphWriter;
 import com.itmo.ticketsystem.common.service.Importer;
-import com.itmo.ticketsystem.coordinates.CoordinatesService;
-import com.itmo.ticketsystem.coordinates.dto.CoordinatesDto;
-import com.itmo.ticketsystem.event.EventService;
-import com.itmo.ticketsystem.event.dto.EventDto;
-import com.itmo.ticketsystem.location.LocationService;
-import com.itmo.ticketsystem.location.dto.LocationDto;
-import com.itmo.ticketsystem.person.PersonService;
-import com.itmo.ticketsystem.person.dto.PersonCreateDto;
-import com.itmo.ticketsystem.person.dto.PersonDto;
-import com.itmo.ticketsystem.person.dto.PersonImportDto;
-import com.itmo.ticketsystem.ticket.dto.TicketCreateDto;
+import com.itmo.ticketsystem.common.service.RecordError;
+import com.itmo.ticketsystem.common.service.UniqueKeyType;
+import com.itmo.ticketsystem.location.LocationValidator;
+import com.itmo.ticketsystem.person.PersonValidator;
 import com.itmo.ticketsystem.ticket.dto.TicketImportDto;
 import com.itmo.ticketsystem.user.User;
-import com.itmo.ticketsystem.venue.VenueService;
-import com.itmo.ticketsystem.venue.dto.VenueDto;
-import jakarta.validation.Validator;
+import com.itmo.ticketsystem.venue.VenueValidator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
 @Service
 public class TicketImportService extends Importer<TicketImportDto> {
 
-    private final TicketService ticketService;
-    private final CoordinatesService coordinatesService;
-    private final PersonService personService;
-    private final EventService eventService;
-    private final VenueService venueService;
-    private final LocationService locationService;
+    private final ImportGraphWriter importGraphWriter;
+    private final TicketReferenceResolver ticketReferenceResolver;
+    private final LocationValidator locationValidator;
+    private final VenueValidator venueValidator;
+    private final PersonValidator personValidator;
 
     public TicketImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            TicketService ticketService,
-            CoordinatesService coordinatesService,
-            PersonService personService,
-            EventService eventService,
-            VenueService venueService,
-            LocationService locationService) {
-        super(TicketImportDto.class, objectMapper, validator);
-        this.ticketService = ticketService;
-        this.coordinatesService = coordinatesService;
-        this.personService = personService;
-        this.eventService = eventService;
-        this.venueService = venueService;
-        this.locationService = locationService;
+            ImportGraphWriter importGraphWriter,
+            TicketReferenceResolver ticketReferenceResolver,
+            LocationValidator locationValidator,
+            VenueValidator venueValidator,
+            PersonValidator personValidator) {
+        super(TicketImportDto.class);
+        this.importGraphWriter = importGraphWriter;
+        this.ticketReferenceResolver = ticketReferenceResolver;
+        this.locationValidator = locationValidator;
+        this.venueValidator = venueValidator;
+        this.personValidator = personValidator;
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(TicketImportDto[] ticketDtos, User currentUser) throws Exception {
-        int count = 0;
-        for (int i = 0; i < ticketDtos.length; i++) {
-            TicketImportDto importDto = ticketDtos[i];
-            validateDto(importDto, i);
+    protected int doImportInternal(TicketImportDto[] ticketDtos, int offset, Long importId, User currentUser)
+            throws Exception {
+        checkUniqueness(ticketDtos);
 
-            // Create nested entities through service layer
-            CoordinatesDto coordinates = coordinatesService.createCoordinates(importDto.getCoordinates(), currentUser);
+        // Existing entities referenced by the batch, one query per kind of reference
+        List<TicketImportDto> batch = Arrays.asList(ticketDtos);
+        TicketReferenceResolver.References references = ticketReferenceResolver.resolve(batch);
+        rejectRecords(ticketReferenceResolver.check(batch, offset, references));
 
-            // Create nested location for person
-            LocationDto location = locationService.createLocation(importDto.getPerson().getLocation(), currentUser);
+        // Whole entity graph of the batch in one pass
+        return importGraphWriter.writeTickets(ticketDtos, references, importId, currentUser);
+    }
 
-            // Create nested person
-            PersonCreateDto personCreateDto = buildPersonCreateDto(importDto.getPerson(), location.getId());
-            PersonDto person = personService.createPerson(personCreateDto, currentUser);
+    @Override
+    protected List<RecordError> checkReferences(List<TicketImportDto> block, int offset) {
+        return ticketReferenceResolver.check(block, offset, ticketReferenceResolver.resolve(block));
+    }
 
-            // Create nested event if present
-            Long eventId = null;
-            if (importDto.getEvent() != null) {
-                EventDto event = eventService.createEvent(importDto.getEvent(), currentUser);
-                eventId = event.getId();
-            }
+    /**
+     * Uniqueness constraints of the nested (new) entities, checked with one query per
+     * key type for the whole batch instead of one query per row. Duplicates from
+     * earlier batches are already flushed, so they are found by the queries too.
+     */
+    private void checkUniqueness(TicketImportDto[] ticketDtos) {
+        locationValidator.checkNamesUniqueness(Arrays.stream(ticketDtos)
+                .filter(dto -> dto.getPerson() != null)
+                .map(dto -> dto.getPerson().getLocation().getName())
+                .filter(Objects::nonNull)
+                .toList());
+        venueValidator.checkNamesUniqueness(Arrays.stream(ticketDtos)
+                .filter(dto -> dto.getVenue() != null)
+                .map(dto -> dto.getVenue().getName())
+                .filter(Objects::nonNull)
+                .toList());
+        personValidator.checkPassportIDsUniqueness(Arrays.stream(ticketDtos)
+                .filter(dto -> dto.getPerson() != null)
+                .map(dto -> dto.getPerson().getPassportID())
+                .toList());
+    }
 
-            // Create nested venue if present
-            Long venueId = null;
-            if (importDto.getVenue() != null) {
-                VenueDto venue = venueService.createVenue(importDto.getVenue(), currentUser);
-                venueId = venue.getId();
+    @Override
+    protected Map<UniqueKeyType, String> uniqueKeys(TicketImportDto dto) {
+        Map<UniqueKeyType, String> keys = new EnumMap<>(UniqueKeyType.class);
+        if (dto.getPerson() != null) {
+            if (dto.getPerson().getLocation() != null && dto.getPerson().getLocation().getName() != null) {
+                keys.put(UniqueKeyType.LOCATION_NAME, dto.getPerson().getLocation().getName());
+            }
+            if (dto.getPerson().getPassportID() != null) {
+                keys.put(UniqueKeyType.PASSPORT_ID, dto.getPerson().getPassportID());
             }
-
-            // Build TicketCreateDto with IDs of created nested entities
-            TicketCreateDto ticketCreateDto = buildTicketCreateDto(
-                    importDto,
-                    coordinates.getId(),
-                    person.getId(),
-                    eventId,
-                    venueId);
-
-            // Use service layer to enforce business logic and uniqueness constraints
-            ticketService.createTicket(ticketCreateDto, currentUser);
-            count++;
         }
-
-        return count;
-    }
-
-    private PersonCreateDto buildPersonCreateDto(PersonImportDto importDto, Long locationId) {
-        PersonCreateDto createDto = new PersonCreateDto();
-        createDto.setEyeColor(importDto.getEyeColor());
-        createDto.setHairColor(importDto.getHairColor());
-        createDto.setPassportID(importDto.getPassportID());
-        createDto.setNationality(importDto.getNationality());
-        createDto.setLocationId(locationId);
-        return createDto;
+        if (dto.getVenue() != null && dto.getVenue().getName() != null) {
+            keys.put(UniqueKeyType.VENUE_NAME, dto.getVenue().getName());
+        }
+        return keys;
     }
 
-    private TicketCreateDto buildTicketCreateDto(
-            TicketImportDto importDto,
-            Long coordinatesId,
-            Long personId,
-            Long eventId,
-            Long venueId) {
-        TicketCreateDto createDto = new TicketCreateDto();
-        createDto.setName(importDto.getName());
-        createDto.setCoordinatesId(coordinatesId);
-        createDto.setCreationDate(importDto.getCreationDate());
-        createDto.setPersonId(personId);
-        createDto.setEventId(eventId);
-        createDto.setPrice(importDto.getPrice());
-        createDto.setType(importDto.getType());
-        createDto.setDiscount(importDto.getDiscount());
-        createDto.setNumber(importDto.getNumber());
-        createDto.setComment(importDto.getComment());
-        createDto.setVenueId(venueId);
-        return createDto;
+    @Override
+    protected int rowCount(TicketImportDto dto) {
+        // Ticket and its nested entities, referenced ones are not written
+        return 1 + (dto.getCoordinates() != null ? 1 : 0) + (dto.getPerson() != null ? 2 : 0)
+                + (dto.getEvent() != null ? 1 : 0) + (dto.getVenue() != null ? 1 : 0);
     }
 }
@@ -0,0 +1,191 @@
+package com.itmo.ticketsystem.ticket;
+
+import com.itmo.ticketsystem.common.service.RecordError;
+import com.itmo.ticketsystem.coordinates.Coordinates;
+import com.itmo.ticketsystem.coordinates.CoordinatesRepository;
+import com.itmo.ticketsystem.event.Event;
+import com.itmo.ticketsystem.event.EventRepository;
+import com.itmo.ticketsystem.person.Person;
+import com.itmo.ticketsystem.person.PersonRepository;
+import com.itmo.ticketsystem.ticket.dto.TicketImportDto;
+import com.itmo.ticketsystem.venue.Venue;
+import com.itmo.ticketsystem.venue.VenueRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the references of ticket import records to existing entities (by id,
+ * passport ID, venue name or event name and date) with one query per kind of
+ * reference for a whole batch, instead of one lookup per record.
+ */
+@Component
+@RequiredArgsConstructor
+public class TicketReferenceResolver {
+
+    private final CoordinatesRepository coordinatesRepository;
+    private final PersonRepository personRepository;
+    private final EventRepository eventRepository;
+    private final VenueRepository venueRepository;
+
+    /**
+     * Entities referenced by a batch of records.
+     */
+    public static class References {
+        private final Map<Long, Coordinates> coordinatesById;
+        private final Map<Long, Person> personsById;
+        private final Map<String, Person> personsByPassportID;
+        private final Map<Long, Event> eventsById;
+        private final Map<String, List<Event>> eventsByName;
+        private final Map<Long, Venue> venuesById;
+        private final Map<String, Venue> venuesByName;
+
+        private References(Map<Long, Coordinates> coordinatesById, Map<Long, Person> personsById,
+                Map<String, Person> personsByPassportID, Map<Long, Event> eventsById,
+                Map<String, List<Event>> eventsByName, Map<Long, Venue> venuesById, Map<String, Venue> venuesByName) {
+            this.coordinatesById = coordinatesById;
+            this.personsById = personsById;
+            this.personsByPassportID = personsByPassportID;
+            this.eventsById = eventsById;
+            this.eventsByName = eventsByName;
+            this.venuesById = venuesById;
+            this.venuesByName = venuesByName;
+        }
+
+        // The accessors return null for records without the reference or with an unresolved one
+
+        public Coordinates coordinates(TicketImportDto dto) {
+            return dto.getCoordinatesId() != null ? coordinatesById.get(dto.getCoordinatesId()) : null;
+        }
+
+        public Person person(TicketImportDto dto) {
+            if (dto.getPersonId() != null) {
+                return personsById.get(dto.getPersonId());
+            }
+            return dto.getPersonPassportID() != null ? personsByPassportID.get(dto.getPersonPassportID()) : null;
+        }
+
+        public Event event(TicketImportDto dto) {
+            if (dto.getEventId() != null) {
+                return eventsById.get(dto.getEventId());
+            }
+            List<Event> candidates = eventCandidates(dto);
+            return candidates.size() == 1 ? candidates.get(0) : null;
+        }
+
+        public Venue venue(TicketImportDto dto) {
+            if (dto.getVenueId() != null) {
+                return venuesById.get(dto.getVenueId());
+            }
+            return dto.getVenueName() != null ? venuesByName.get(dto.getVenueName()) : null;
+        }
+
+        /**
+         * Reasons why the references of a record cannot be resolved, empty if all
+         * of them resolve.
+         */
+        public List<String> problems(TicketImportDto dto) {
+            List<String> problems = new ArrayList<>();
+            if (dto.getCoordinatesId() != null && coordinates(dto) == null) {
+                problems.add("coordinates with ID " + dto.getCoordinatesId() + " not found");
+            }
+            if (dto.getPersonId() != null && person(dto) == null) {
+                problems.add("person with ID " + dto.getPersonId() + " not found");
+            } else if (dto.getPersonPassportID() != null && person(dto) == null) {
+                problems.add("person with passport ID '" + dto.getPersonPassportID() + "' not found");
+            }
+            if (dto.getEventId() != null && event(dto) == null) {
+                problems.add("event with ID " + dto.getEventId() + " not found");
+            } else if (dto.getEventName() != null) {
+                int candidates = eventCandidates(dto).size();
+                if (candidates == 0) {
+                    problems.add("event '" + dto.getEventName() + "'"
+                            + (dto.getEventDate() != null ? " on " + dto.getEventDate() : "") + " not found");
+                } else if (candidates > 1) {
+                    problems.add("event '" + dto.getEventName() + "' is ambiguous, "
+                            + "add eventDate or reference it by eventId");
+                }
+            }
+            if (dto.getVenueId() != null && venue(dto) == null) {
+                problems.add("venue with ID " + dto.getVenueId() + " not found");
+            } else if (dto.getVenueName() != null && venue(dto) == null) {
+                problems.add("venue '" + dto.getVenueName() + "' not found");
+            }
+            return problems;
+        }
+
+        // Event dates are compared as instants, the zone of the import may differ from the stored one
+        private List<Event> eventCandidates(TicketImportDto dto) {
+            if (dto.getEventName() == null) {
+                return List.of();
+            }
+            return eventsByName.getOrDefault(dto.getEventName(), List.of()).stream()
+                    .filter(event -> dto.getEventDate() == null || (event.getDate() != null
+                            && event.getDate().toInstant().equals(dto.getEventDate().toInstant())))
+                    .toList();
+        }
+    }
+
+    public References resolve(Collection<TicketImportDto> dtos) {
+        return new References(
+                index(collect(dtos, TicketImportDto::getCoordinatesId), coordinatesRepository::findAllById,
+                        Coordinates::getId),
+                index(collect(dtos, TicketImportDto::getPersonId), personRepository::findAllById, Person::getId),
+                index(collect(dtos, TicketImportDto::getPersonPassportID), personRepository::findByPassportIDIn,
+                        Person::getPassportID),
+                index(collect(dtos, TicketImportDto::getEventId), eventRepository::findAllById, Event::getId),
+                lookup(collect(dtos, TicketImportDto::getEventName), eventRepository::findByNameIn).stream()
+                        .collect(Collectors.groupingBy(Event::getName)),
+                index(collect(dtos, TicketImportDto::getVenueId), venueRepository::findAllById, Venue::getId),
+                index(collect(dtos, TicketImportDto::getVenueName), venueRepository::findByNameIn, Venue::getName));
+    }
+
+    /**
+     * Reference errors of a batch, one per failing record.
+     *
+     * @param offset index of the first record of the batch within the whole file
+     */
+    public List<RecordError> check(List<TicketImportDto> dtos, int offset, References references) {
+        List<RecordError> errors = new ArrayList<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            if (dtos.get(i) == null) {
+                continue;
+            }
+            List<String> problems = references.problems(dtos.get(i));
+            if (!problems.isEmpty()) {
+                errors.add(new RecordError(offset + i, String.join(", ", problems)));
+            }
+        }
+        return errors;
+    }
+
+    private static <K> Set<K> collect(Collection<TicketImportDto> dtos, Function<TicketImportDto, K> key) {
+        return dtos.stream()
+                .filter(Objects::nonNull)
+                .map(key)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    // Skips the query when the batch has no reference of the kind
+    private static <K, E> List<E> lookup(Set<K> keys, Function<Collection<K>, List<E>> query) {
+        return keys.isEmpty() ? List.of() : query.apply(keys);
+    }
+
+    private static <K, E> Map<K, E> index(Set<K> keys, Function<Collection<K>, List<E>> query, Function<E, K> key) {
+        Map<K, E> result = new HashMap<>();
+        for (E entity : lookup(keys, query)) {
+            result.put(key.apply(entity), entity);
+        }
+        return result;
+    }
+}
@@ -1,11 +1,13 @@
 package com.itmo.ticketsystem.ticket.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.itmo.ticketsystem.common.TicketType;
 import com.itmo.ticketsystem.coordinates.dto.CoordinatesCreateDto;
 import com.itmo.ticketsystem.event.dto.EventCreateDto;
 import com.itmo.ticketsystem.person.dto.PersonImportDto;
 import com.itmo.ticketsystem.venue.dto.VenueCreateDto;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -15,7 +17,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Data
 @NoArgsConstructor
@@ -26,13 +31,11 @@ public class TicketImportDto {
     @NotNull(message = "Name cannot be null")
     private String name;
 
-    @NotNull(message = "Coordinates cannot be null")
     @Valid
     private CoordinatesCreateDto coordinates;
 
     private Date creationDate;
 
-    @NotNull(message = "Person cannot be null")
     @Valid
     private PersonImportDto person;
 
@@ -58,4 +61,43 @@ public class TicketImportDto {
 
     @Valid
     private VenueCreateDto venue;
+
+    // References to existing entities, used instead of the nested objects above
+    private Long coordinatesId;
+    private Long personId;
+    private String personPassportID;
+    private Long eventId;
+    private String eventName;
+    // Narrows eventName down when several events share the name
+    private ZonedDateTime eventDate;
+    private Long venueId;
+    private String venueName;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either coordinates or coordinatesId must be given")
+    public boolean isCoordinatesGiven() {
+        return given(coordinates, coordinatesId) == 1;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Exactly one of person, personId and personPassportID must be given")
+    public boolean isPersonGiven() {
+        return given(person, personId, personPassportID) == 1;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "At most one of event, eventId and eventName may be given")
+    public boolean isEventGiven() {
+        return given(event, eventId, eventName) <= 1 && (eventDate == null || eventName != null);
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "At most one of venue, venueId and venueName may be given")
+    public boolean isVenueGiven() {
+        return given(venue, venueId, venueName) <= 1;
+    }
+
+    private static long given(Object... values) {
+        return Stream.of(values).filter(Objects::nonNull).count();
+    }
 }
@@ -12,12 +12,14 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "venues")
+@Table(name = "venues", uniqueConstraints = @UniqueConstraint(columnNames = "name"),
+        indexes = @Index(name = "idx_venues_import_id", columnList = "import_id"))
 @Cacheable
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
@@ -48,6 +50,15 @@ public class Venue {
     @JoinColumn(name = "created_by")
     private User createdBy;
 
+    @Column(name = "import_id")
+    private Long importId;
+
+    // Bumped by every update, including upsert imports; rows written by COPY start at the column default
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany(mappedBy = "venue", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Ticket> tickets = new ArrayList<>();
 }
@@ -1,39 +1,107 @@
 package com.itmo.ticketsystem.venue;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.itmo.ticketsystem.common.service.BulkCopyWriter;
+import com.itmo.ticketsystem.common.service.BulkUpsertWriter;
 import com.itmo.ticketsystem.common.service.Importer;
+import com.itmo.ticketsystem.common.service.UniqueKeyType;
+import com.itmo.ticketsystem.common.service.UpsertImporter;
+import com.itmo.ticketsystem.common.ws.ChangeEvent;
+import com.itmo.ticketsystem.common.ws.ChangeEventPublisher;
 import com.itmo.ticketsystem.user.User;
 import com.itmo.ticketsystem.venue.dto.VenueCreateDto;
-import jakarta.validation.Validator;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 @Service
-public class VenueImportService extends Importer<VenueCreateDto> {
+public class VenueImportService extends Importer<VenueCreateDto> implements UpsertImporter<VenueCreateDto> {
+
+    private static final String[] COPY_COLUMNS = { "name", "capacity", "type", "created_by", "import_id" };
+    private static final String[] UPSERT_KEY = { "name" };
+    private static final String[] UPSERT_UPDATED = { "capacity", "type" };
 
     private final VenueService venueService;
+    private final VenueValidator venueValidator;
+    private final BulkCopyWriter bulkCopyWriter;
+    private final BulkUpsertWriter bulkUpsertWriter;
+    private final ChangeEventPublisher changeEventPublisher;
 
     public VenueImportService(
-            ObjectMapper objectMapper,
-            Validator validator,
-            VenueService venueService) {
-        super(VenueCreateDto.class, objectMapper, validator);
+            VenueService venueService,
+            VenueValidator venueValidator,
+            BulkCopyWriter bulkCopyWriter,
+            BulkUpsertWriter bulkUpsertWriter,
+            ChangeEventPublisher changeEventPublisher) {
+        super(VenueCreateDto.class);
         this.venueService = venueService;
+        this.venueValidator = venueValidator;
+        this.bulkCopyWriter = bulkCopyWriter;
+        this.bulkUpsertWriter = bulkUpsertWriter;
+        this.changeEventPublisher = changeEventPublisher;
     }
 
     @Override
     @Transactional
-    protected int doImportInternal(VenueCreateDto[] venueDtos, User currentUser) throws Exception {
-        int count = 0;
+    protected int doImportInternal(VenueCreateDto[] venueDtos, int offset, Long importId, User currentUser)
+            throws Exception {
+        if (getImportConfig().isCopyEnabled()) {
+            return copyImport(venueDtos, importId, currentUser);
+        }
+
+        // Business layer uniqueness constraint, checked once for the whole batch
+        venueValidator.checkNamesUniqueness(Arrays.stream(venueDtos).map(VenueCreateDto::getName).toList());
+
         for (int i = 0; i < venueDtos.length; i++) {
             VenueCreateDto dto = venueDtos[i];
-            validateDto(dto, i);
 
-            // Use service layer to enforce business logic and uniqueness constraints
-            venueService.createVenue(dto, currentUser);
-            count++;
+            // Use service layer to enforce business logic
+            venueService.createPrecheckedVenue(dto, importId, currentUser);
+        }
+        return venueDtos.length;
+    }
+
+    @Override
+    @Transactional
+    public int doUpsertInternal(VenueCreateDto[] venueDtos, int offset, Long importId, User currentUser) {
+        rejectDuplicateKeys(venueDtos);
+
+        // One merge for the whole batch, keyed on the venue name
+        BulkUpsertWriter.Result result = bulkUpsertWriter.upsert(Venue.class, "venues", COPY_COLUMNS, UPSERT_KEY,
+                UPSERT_UPDATED, venueDtos,
+                dto -> new Object[] { dto.getName(), dto.getCapacity(), dto.getType(), currentUser.getId(),
+                        importId });
+
+        if (result.inserted() > 0) {
+            changeEventPublisher.publish("venues", ChangeEvent.Operation.CREATE, null, result.inserted());
+        }
+        if (result.updated() > 0) {
+            changeEventPublisher.publish("venues", ChangeEvent.Operation.UPDATE, null, result.updated());
         }
+        return venueDtos.length;
+    }
+
+    @Override
+    protected Map<UniqueKeyType, String> uniqueKeys(VenueCreateDto dto) {
+        return dto.getName() != null ? Map.of(UniqueKeyType.VENUE_NAME, dto.getName()) : Map.of();
+    }
+
+    @Override
+    protected boolean isCopyImport() {
+        return getImportConfig().isCopyEnabled();
+    }
+
+    private int copyImport(VenueCreateDto[] venueDtos, Long importId, User currentUser) {
+        // Business layer uniqueness constraint, checked once for the whole batch
+        venueValidator.checkNamesUniqueness(Arrays.stream(venueDtos).map(VenueCreateDto::getName).toList());
+
+        long count = bulkCopyWriter.copy("venues", COPY_COLUMNS, venueDtos,
+                dto -> new Object[] { dto.getName(), dto.getCapacity(), dto.getType(), currentUser.getId(),
+                        importId });
 
-        return count;
+        changeEventPublisher.publish("venues", ChangeEvent.Operation.CREATE, null, count);
+        return (int) count;
     }
 }
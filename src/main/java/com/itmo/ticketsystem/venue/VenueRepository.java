@@ -3,11 +3,21 @@ package com.itmo.ticketsystem.venue;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface VenueRepository extends JpaRepository<Venue, Long> {
     Page<Venue> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
     boolean existsByName(String name);
+
+    @Query("SELECT v.name FROM Venue v WHERE v.name IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    List<Venue> findByNameIn(Collection<String> names);
 }
@@ -54,6 +54,25 @@ public class VenueService {
         // Business layer uniqueness constraint
         venueValidator.checkNameUniqueness(venue.getName());
 
+        return saveVenue(venue);
+    }
+
+    /**
+     * Import variant of {@link #createVenue}: the importer has already checked
+     * name uniqueness for the whole chunk, so no per-row query is run. The row
+     * is tagged with the import that writes it.
+     */
+    @Transactional
+    public VenueDto createPrecheckedVenue(VenueCreateDto venueCreateDto, Long importId, User currentUser) {
+        authorizationService.requireAuthenticated(currentUser);
+
+        Venue venue = venueMapper.toEntity(venueCreateDto);
+        venue.setCreatedBy(currentUser);
+        venue.setImportId(importId);
+        return saveVenue(venue);
+    }
+
+    private VenueDto saveVenue(Venue venue) {
         Venue savedVenue = venueRepository.save(venue);
 
         VenueDto dto = venueMapper.toDto(savedVenue);
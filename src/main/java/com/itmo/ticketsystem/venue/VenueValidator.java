@@ -6,6 +6,11 @@ import com.itmo.ticketsystem.common.exceptions.BusinessValidationException;
 
 import lombok.RequiredArgsConstructor;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 @RequiredArgsConstructor
 public class VenueValidator {
@@ -18,4 +23,26 @@ public class VenueValidator {
             throw new BusinessValidationException("Venue name '" + name + "' already exists");
         }
     }
+
+    /**
+     * Set-based variant of {@link #checkNameUniqueness(String)}: duplicates
+     * inside {@code names} and names already stored are both rejected, with a
+     * single query for the whole collection.
+     */
+    public void checkNamesUniqueness(Collection<String> names) {
+        Set<String> normalized = new HashSet<>();
+        for (String name : names) {
+            if (name != null && !normalized.add(name.trim())) {
+                throw new BusinessValidationException("Venue name '" + name + "' is duplicated in import");
+            }
+        }
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        List<String> existing = venueRepository.findExistingNames(normalized);
+        if (!existing.isEmpty()) {
+            throw new BusinessValidationException("Venue name '" + existing.get(0) + "' already exists");
+        }
+    }
 }